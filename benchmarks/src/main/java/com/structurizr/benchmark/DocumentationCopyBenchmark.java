@@ -0,0 +1,53 @@
+package com.structurizr.benchmark;
+
+import com.structurizr.documentation.Documentation;
+import com.structurizr.documentation.DocumentationTools;
+import com.structurizr.model.SoftwareSystem;
+import com.structurizr.model.WorkspaceTools;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link DocumentationTools#copy(Documentation, Documentation)} for documentation of different sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DocumentationCopyBenchmark {
+
+    @Param({"1024", "65536", "1048576"})
+    public int documentationBytes;
+
+    private Path directory;
+    private Set<SoftwareSystem> softwareSystems;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Enterprises.createDirectory();
+        final SyntheticEnterprise.Shape shape = new SyntheticEnterprise.Shape(1, 10, 0, 0, 0, 0, documentationBytes);
+        softwareSystems = WorkspaceTools.parse(new SyntheticEnterprise(shape).writeTo(directory)).get(0)
+                .getModel().getSoftwareSystems();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Enterprises.delete(directory);
+    }
+
+    @Benchmark
+    public void copy(Blackhole blackhole) {
+        for (SoftwareSystem softwareSystem : softwareSystems) {
+            final Documentation documentation = new Documentation();
+            DocumentationTools.copy(softwareSystem.getDocumentation(), documentation);
+            blackhole.consume(documentation);
+        }
+    }
+}
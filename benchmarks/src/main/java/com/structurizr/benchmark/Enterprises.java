@@ -0,0 +1,35 @@
+package com.structurizr.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Shapes and housekeeping shared by the benchmarks.
+ */
+final class Enterprises {
+
+    private Enterprises() {
+    }
+
+    /**
+     * A typical enterprise shape, scaled by the number of workspaces.
+     */
+    static SyntheticEnterprise.Shape typical(int workspaces) {
+        return new SyntheticEnterprise.Shape(workspaces, 4, 5, 5, 0.5, 3, 16 * 1024);
+    }
+
+    static Path createDirectory() throws IOException {
+        return Files.createTempDirectory("synthetic-enterprise");
+    }
+
+    static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.structurizr.benchmark;
+
+import com.structurizr.Workspace;
+import com.structurizr.model.Model;
+import com.structurizr.model.WorkspaceTools;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link WorkspaceTools#merge(List, Model)} of already parsed workspaces.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MergeBenchmark {
+
+    @Param({"10", "50", "150"})
+    public int workspaces;
+
+    private Path directory;
+    private List<Workspace> parsed;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Enterprises.createDirectory();
+        parsed = WorkspaceTools.parse(new SyntheticEnterprise(Enterprises.typical(workspaces)).writeTo(directory));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Enterprises.delete(directory);
+    }
+
+    @Benchmark
+    public Model merge() {
+        final Workspace merged = new Workspace("Merged", "Synthetic enterprise");
+        WorkspaceTools.merge(parsed, merged.getModel());
+        return merged.getModel();
+    }
+}
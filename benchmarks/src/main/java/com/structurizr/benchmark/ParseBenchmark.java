@@ -0,0 +1,44 @@
+package com.structurizr.benchmark;
+
+import com.structurizr.Workspace;
+import com.structurizr.model.WorkspaceTools;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing a directory of DSL workspaces with {@link WorkspaceTools#parse(List)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    @Param({"10", "50", "150"})
+    public int workspaces;
+
+    private Path directory;
+    private List<Path> paths;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Enterprises.createDirectory();
+        paths = new SyntheticEnterprise(Enterprises.typical(workspaces)).writeTo(directory);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Enterprises.delete(directory);
+    }
+
+    @Benchmark
+    public List<Workspace> parse() {
+        return WorkspaceTools.parse(paths);
+    }
+}
@@ -0,0 +1,137 @@
+package com.structurizr.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates a synthetic enterprise as a directory of DSL workspaces that can be merged.
+ * Each workspace defines its own software systems, containers and components,
+ * and declares some of the systems defined by other workspaces as 'External'.
+ * The output is deterministic for a given shape.
+ */
+public class SyntheticEnterprise {
+
+    /**
+     * The shape of the enterprise.
+     * @param workspaces number of workspaces
+     * @param systems software systems defined by each workspace
+     * @param containers containers in each software system
+     * @param components components in each container
+     * @param externalRatio External declarations per workspace, as a fraction of the systems it defines
+     * @param relationships relationships from each container
+     * @param documentationBytes size of the documentation of each software system, or 0 for none
+     */
+    public record Shape(int workspaces, int systems, int containers, int components,
+                        double externalRatio, int relationships, int documentationBytes) {
+    }
+
+    private static final long SEED = 42;
+
+    private final Shape shape;
+
+    public SyntheticEnterprise(Shape shape) {
+        this.shape = shape;
+    }
+
+    /**
+     * Writes one DSL file per workspace, and any documentation, into a directory.
+     * @return the DSL files, in workspace order
+     */
+    public List<Path> writeTo(Path directory) throws IOException {
+        final Random random = new Random(SEED);
+        final List<Path> paths = new ArrayList<>();
+        for (int w = 0; w < shape.workspaces(); w++) {
+            final Path path = directory.resolve(String.format("workspace-%04d.dsl", w));
+            Files.writeString(path, workspace(w, directory, random));
+            paths.add(path);
+        }
+        return paths;
+    }
+
+    private String workspace(int w, Path directory, Random random) throws IOException {
+        final StringBuilder dsl = new StringBuilder();
+        dsl.append("workspace \"Workspace ").append(w).append("\" {\n");
+        dsl.append("    model {\n");
+
+        // External declarations of systems defined by other workspaces
+        final List<String> externals = new ArrayList<>();
+        final Set<String> externalNames = new HashSet<>();
+        final int externalCount = shape.workspaces() > 1 ? (int) Math.round(shape.systems() * shape.externalRatio()) : 0;
+        for (int x = 0; x < externalCount; x++) {
+            int other = random.nextInt(shape.workspaces() - 1);
+            if (other >= w) {
+                other++;
+            }
+            final String name = systemName(other, random.nextInt(shape.systems()));
+            final String identifier = "x" + x;
+            if (externalNames.add(name)) {
+                dsl.append("        ").append(identifier).append(" = SoftwareSystem \"").append(name).append("\" \"\" \"External\"\n");
+                externals.add(identifier);
+            }
+        }
+
+        // Definitive systems, containers and components
+        final List<String> containers = new ArrayList<>();
+        for (int s = 0; s < shape.systems(); s++) {
+            dsl.append("        s").append(s).append(" = SoftwareSystem \"").append(systemName(w, s))
+                    .append("\" \"Synthetic system\" \"Tier ").append(s % 3).append("\" {\n");
+            if (shape.documentationBytes() > 0) {
+                final String docs = String.format("workspace-%04d-docs/system-%d", w, s);
+                Files.createDirectories(directory.resolve(docs));
+                Files.writeString(directory.resolve(docs).resolve("01 Overview.md"), documentation(w, s));
+                dsl.append("            !docs \"").append(docs).append("\"\n");
+            }
+            for (int c = 0; c < shape.containers(); c++) {
+                final String container = "s" + s + "c" + c;
+                dsl.append("            ").append(container).append(" = Container \"Container ").append(c)
+                        .append("\" \"Synthetic container\" \"Java\" {\n");
+                for (int k = 0; k < shape.components(); k++) {
+                    dsl.append("                Component \"Component ").append(k)
+                            .append("\" \"Synthetic component\" \"Spring Bean\"\n");
+                }
+                dsl.append("            }\n");
+                containers.add(container);
+            }
+            dsl.append("        }\n");
+        }
+
+        // Relationships from each container, to other containers or to External systems
+        final List<String> destinations = new ArrayList<>(containers);
+        destinations.addAll(externals);
+        int r = 0;
+        for (String source : containers) {
+            for (int i = 0; i < shape.relationships() && destinations.size() > 1; i++) {
+                int d = random.nextInt(destinations.size());
+                if (destinations.get(d).equals(source)) {
+                    d = (d + 1) % destinations.size();
+                }
+                final String destination = destinations.get(d);
+                dsl.append("        ").append(source).append(" -> ").append(destination)
+                        .append(" \"Calls ").append(r++).append("\" \"HTTPS\"\n");
+            }
+        }
+
+        dsl.append("    }\n");
+        dsl.append("}\n");
+        return dsl.toString();
+    }
+
+    private String documentation(int w, int s) {
+        final StringBuilder markdown = new StringBuilder("## ").append(systemName(w, s)).append("\n\n");
+        final String line = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor.\n";
+        while (markdown.length() < shape.documentationBytes()) {
+            markdown.append(line);
+        }
+        return markdown.toString();
+    }
+
+    private static String systemName(int w, int s) {
+        return "System " + w + "-" + s;
+    }
+}
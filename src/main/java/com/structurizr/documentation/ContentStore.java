@@ -0,0 +1,73 @@
+package com.structurizr.documentation;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content-addressed store of documentation content, used while copying documentation.
+ * Sections and images with identical content, such as shared diagrams and boilerplate pages,
+ * end up sharing one string rather than each holding a copy.
+ * Merging uses another store to intern repeated element attributes, such as tags and technologies.
+ */
+public class ContentStore {
+
+    // Keyed by the content itself, so lookups use its (cached) hash and confirm equality
+    private final Map<String, String> contents = new ConcurrentHashMap<>();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    /**
+     * @return the stored content equal to the given content, storing it if it is new
+     */
+    public String store(String content) {
+        if (null == content) {
+            return null;
+        }
+        final String stored = contents.putIfAbsent(content, content);
+        if (null == stored) {
+            return content;
+        }
+        if (stored != content) {
+            bytesSaved.addAndGet(utf8Length(content));
+        }
+        return stored;
+    }
+
+    /**
+     * @return the size of the duplicate content that was replaced by stored content, in UTF-8 bytes
+     */
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    /**
+     * @return the size of some content once encoded as UTF-8, in bytes, without encoding it
+     */
+    static long utf8Length(String content) {
+        if (null == content) {
+            return 0;
+        }
+        long length = 0;
+        for (int i = 0; i < content.length(); i++) {
+            final char c = content.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < content.length() && Character.isLowSurrogate(content.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * @return the number of distinct contents stored
+     */
+    public int size() {
+        return contents.size();
+    }
+}
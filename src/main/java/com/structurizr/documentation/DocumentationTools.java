@@ -1,36 +1,76 @@
 package com.structurizr.documentation;
 
-import java.util.Comparator;
+import com.structurizr.model.Ids;
+
+import java.util.*;
+import java.util.stream.Collectors;
 
 public class DocumentationTools {
+
     /**
      * Copy Structurizr documentation.
-     * @throws UnsupportedOperationException if there are any decisions, as these aren't yet supported
+     * @return the size of the section, image and decision content copied, in UTF-8 bytes
      */
-    public static void copy(Documentation original, Documentation copy) {
-        original.getSections().stream()
-                .sorted(Comparator.comparing(Section::getOrder))
-                .forEach(section -> {
-                    final Section newSection = new Section(section.getFormat(), section.getContent());
-                    newSection.setFilename(section.getFilename());
-                    copy.addSection(newSection);
-                });
-        original.getImages().forEach(image ->
-                copy.addImage(new Image(image.getName(), image.getType(), image.getContent()))
-        );
+    public static long copy(Documentation original, Documentation copy) {
+        return copy(original, copy, new ContentStore());
+    }
 
-        // TODO: add support for architecture decisions
-        if (!original.getDecisions().isEmpty()) {
-            throw new UnsupportedOperationException(DocumentationTools.class.getSimpleName() + ".copy does not yet support copying decisions");
+    /**
+     * Copy Structurizr documentation, sharing section, image and decision content held by a content store.
+     * Decisions keep their IDs where these are free in the copy, and are otherwise given new ones,
+     * with the links between them remapped to match.
+     * @return the size of the section, image and decision content copied, in UTF-8 bytes
+     */
+    public static long copy(Documentation original, Documentation copy, ContentStore contentStore) {
+        long size = 0;
+        for (Section section : original.getSections().stream()
+                .sorted(Comparator.comparing(Section::getOrder))
+                .toList()) {
+            final Section newSection = new Section(section.getFormat(), contentStore.store(section.getContent()));
+            newSection.setFilename(section.getFilename());
+            copy.addSection(newSection);
+            size += ContentStore.utf8Length(section.getContent());
+        }
+        for (Image image : original.getImages()) {
+            copy.addImage(new Image(image.getName(), image.getType(), contentStore.store(image.getContent())));
+            size += ContentStore.utf8Length(image.getContent());
         }
-        original.getDecisions().forEach(decision -> {
+
+        // Copy the decisions, then re-create the links between them,
+        // resolving each link's old decision ID through a table of the new decisions
+        final Set<String> usedIds = copy.getDecisions().stream()
+                .map(Decision::getId)
+                .collect(Collectors.toCollection(HashSet::new));
+        final List<Decision> decisions = original.getDecisions().stream()
+                .sorted(Comparator.comparing(Decision::getId, Comparator.nullsLast(Ids.ORDER)))
+                .toList();
+        final Map<String, Decision> newDecisions = new HashMap<>();
+        int nextId = 1;
+        for (Decision decision : decisions) {
+            String id = decision.getId();
+            while (null == id || !usedIds.add(id)) {
+                id = String.valueOf(nextId++);
+            }
             final Decision newDecision = new Decision();
+            newDecision.setId(id);
             newDecision.setDate(decision.getDate());
             newDecision.setFormat(decision.getFormat());
             newDecision.setStatus(decision.getStatus());
             newDecision.setTitle(decision.getTitle());
-            newDecision.setLinks(decision.getLinks()); // Have to deep-copy decision links, resolving their IDs
+            newDecision.setContent(contentStore.store(decision.getContent()));
+            newDecisions.put(decision.getId(), newDecision);
+            size += ContentStore.utf8Length(decision.getContent());
+        }
+        for (Decision decision : decisions) {
+            final Decision newDecision = newDecisions.get(decision.getId());
+            for (var link : decision.getLinks()) {
+                final Decision linked = newDecisions.get(link.getId());
+                if (null != linked) {
+                    newDecision.addLink(linked, link.getDescription());
+                }
+            }
             copy.addDecision(newDecision);
-        });
+        }
+        return size;
     }
 }
@@ -0,0 +1,55 @@
+package com.structurizr.model;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes files that are replaced atomically, so a concurrent reader never sees a partial file.
+ */
+final class AtomicFiles {
+
+    interface Content {
+        void writeTo(Path file) throws IOException;
+    }
+
+    private AtomicFiles() {
+    }
+
+    /**
+     * Writes content to a temporary file in the same directory, then moves it into place.
+     * The temporary file is deleted if the content can't be written, leaving any existing file as it was.
+     * A file that is replaced keeps its POSIX permissions; a new file gets the same permissions as any other
+     * file created by the process, rather than the owner-only permissions of a temporary file.
+     */
+    static void write(Path file, Content content) throws IOException {
+        final Path temporary = createTemporaryFile(file);
+        try {
+            content.writeTo(temporary);
+            if (Files.exists(file) && file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                Files.setPosixFilePermissions(temporary, Files.getPosixFilePermissions(file));
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Unlike Files::createTempFile, Files::createFile applies the default permissions, i.e. the umask
+    private static Path createTemporaryFile(Path file) throws IOException {
+        final Path directory = Optional.ofNullable(file.toAbsolutePath().getParent()).orElse(Path.of(""));
+        while (true) {
+            final Path temporary = directory.resolve(file.getFileName() + "." + Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try {
+                return Files.createFile(temporary);
+            } catch (FileAlreadyExistsException e) {
+                // Try another name
+            }
+        }
+    }
+}
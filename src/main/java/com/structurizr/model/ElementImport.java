@@ -0,0 +1,133 @@
+package com.structurizr.model;
+
+import java.util.*;
+
+/**
+ * Copies planned elements into a model, whatever their type.
+ * Each type has a copy routine in a table, and elements are copied in {@link #ORDER},
+ * so that the parent of every element, and the element every deployment instance is an instance of,
+ * has always been copied first.  Both are resolved with one lookup each in the index of merged elements.
+ */
+final class ElementImport {
+
+    private interface CopyRoutine {
+        Element copy(Model model, WorkspacePlan.ElementPlan element, Element parent, Element instanceOf);
+    }
+
+    // By element type, in the order elements of the same depth are copied:
+    // static structure before the deployment instances of it
+    private static final Map<String, CopyRoutine> COPY_ROUTINES = new LinkedHashMap<>();
+    private static final Map<String, Integer> RANKS = new HashMap<>();
+
+    static {
+        register("Person", (model, element, parent, instanceOf) ->
+                model.addPerson(Location.Unspecified, element.name(), element.description()));
+        register("SoftwareSystem", (model, element, parent, instanceOf) -> {
+            final SoftwareSystem softwareSystem = model.addSoftwareSystem(Location.Unspecified, element.name(), element.description());
+            if (null != element.documentation()) {
+                softwareSystem.setDocumentation(element.documentation());
+            }
+            return softwareSystem;
+        });
+        register("Container", (model, element, parent, instanceOf) ->
+                model.addContainer((SoftwareSystem) parent, element.name(), element.description(), element.technology()));
+        register("Component", (model, element, parent, instanceOf) ->
+                model.addComponent((Container) parent, element.name(), element.description(), element.technology()));
+        register("CustomElement", (model, element, parent, instanceOf) ->
+                model.addCustomElement(element.name(), element.metadata(), element.description()));
+        register("DeploymentNode", (model, element, parent, instanceOf) -> {
+            final DeploymentNode deploymentNode = null == parent
+                    ? model.addDeploymentNode(element.environment(), element.name(), element.description(), element.technology())
+                    : ((DeploymentNode) parent).addDeploymentNode(element.name(), element.description(), element.technology());
+            // The instances may be a range, such as "1..3", rather than a count
+            if (null != element.instances()) {
+                deploymentNode.setInstances(element.instances());
+            }
+            return deploymentNode;
+        });
+        register("InfrastructureNode", (model, element, parent, instanceOf) ->
+                ((DeploymentNode) parent).addInfrastructureNode(element.name(), element.description(), element.technology()));
+        register("SoftwareSystemInstance", (model, element, parent, instanceOf) ->
+                addHealthChecks(element, ((DeploymentNode) parent).add((SoftwareSystem) instanceOf, deploymentGroups(element))));
+        register("ContainerInstance", (model, element, parent, instanceOf) ->
+                addHealthChecks(element, ((DeploymentNode) parent).add((Container) instanceOf, deploymentGroups(element))));
+    }
+
+    /**
+     * Parents before their children, then by type as listed in the table of copy routines.
+     */
+    static final Comparator<WorkspacePlan.ElementPlan> ORDER = Comparator
+            .comparingInt(WorkspacePlan.ElementPlan::depth)
+            .thenComparingInt(element -> rank(element.type()));
+
+    private final Model model;
+    private final Map<String, Element> mergedElements;
+
+    /**
+     * @param mergedElements the merged elements, by canonical name, which copied elements are added to
+     */
+    ElementImport(Model model, Map<String, Element> mergedElements) {
+        this.model = model;
+        this.mergedElements = mergedElements;
+    }
+
+    /**
+     * @return the position of a type in the copy order, with unknown types last
+     */
+    static int rank(String type) {
+        return RANKS.getOrDefault(type, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Copies an element, which must come after its parent, and anything it is an instance of, in {@link #ORDER}.
+     * @return the copy
+     * @throws RuntimeException if the parent, or the element it is an instance of, hasn't been copied
+     * @throws UnsupportedOperationException if there's no copy routine for the type,
+     * which can only happen when loading a snapshot that was written by a different version
+     */
+    Element add(WorkspacePlan.ElementPlan element) {
+        final CopyRoutine routine = Optional.ofNullable(COPY_ROUTINES.get(element.type()))
+                .orElseThrow(() -> new UnsupportedOperationException("Elements of type " + element.type() + " can't be copied"));
+        final Element parent = null == element.parentName() ? null : resolve(element.parentName());
+        final Element instanceOf = null == element.instanceOf() ? null : resolve(element.instanceOf());
+
+        final Element copy = routine.copy(model, element, parent, instanceOf);
+        copyAttributes(element, copy);
+        mergedElements.put(element.canonicalName(), copy);
+        return copy;
+    }
+
+    private Element resolve(String name) {
+        return Optional.ofNullable(mergedElements.get(name))
+                .orElseThrow(() -> new RuntimeException("Element " + name + " has not been defined"));
+    }
+
+    private static void register(String type, CopyRoutine routine) {
+        RANKS.put(type, COPY_ROUTINES.size());
+        COPY_ROUTINES.put(type, routine);
+    }
+
+    private static String[] deploymentGroups(WorkspacePlan.ElementPlan element) {
+        return element.deploymentGroups().toArray(new String[0]);
+    }
+
+    private static Element addHealthChecks(WorkspacePlan.ElementPlan element, StaticStructureElementInstance instance) {
+        element.healthChecks().forEach(healthCheck ->
+                instance.addHealthCheck(healthCheck.name(), healthCheck.url(), healthCheck.interval(), healthCheck.timeout()));
+        return instance;
+    }
+
+    private static void copyAttributes(WorkspacePlan.ElementPlan original, Element copy) {
+        // Replace the default tags with the interned ones, keeping the original order
+        copy.getTagsAsSet().forEach(copy::removeTag);
+        copy.addTags(original.tags().toArray(new String[0]));
+        if (copy instanceof GroupableElement groupableElement) {
+            groupableElement.setGroup(original.group());
+        }
+        copy.setUrl(original.url());
+        if (!original.properties().isEmpty()) {
+            copy.setProperties(new LinkedHashMap<>(original.properties()));
+        }
+        copy.setPerspectives(new LinkedHashSet<>(original.perspectives()));
+    }
+}
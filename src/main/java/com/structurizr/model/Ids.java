@@ -0,0 +1,17 @@
+package com.structurizr.model;
+
+import java.util.Comparator;
+
+/**
+ * Helpers for the IDs of model items, and of decisions, which are numbered in the same way.
+ */
+public final class Ids {
+
+    /**
+     * Orders numeric IDs numerically, without assuming every ID is a number.
+     */
+    public static final Comparator<String> ORDER = Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder());
+
+    private Ids() {
+    }
+}
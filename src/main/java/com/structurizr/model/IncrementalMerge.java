@@ -0,0 +1,187 @@
+package com.structurizr.model;
+
+import com.structurizr.Workspace;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps a merged workspace between runs, so that only DSL files whose content has changed are parsed again.
+ * Changes are detected by a hash of each DSL file, together with the files it references with
+ * {@code !docs}, {@code !adrs}, {@code !include} or {@code workspace extends}, and those they reference in turn.
+ */
+public class IncrementalMerge {
+
+    // Group 1 is the directive, or null for "workspace extends";
+    // the file or directory referenced is group 2 if it is quoted, which allows spaces, otherwise group 3
+    private static final Pattern REFERENCE = Pattern.compile("^\\s*(?:!(docs|adrs|include)|workspace\\s+extends)\\s+(?:\"([^\"]+)\"|(\\S+))");
+    private static final Pattern URL = Pattern.compile("^https?://");
+
+    private record ParsedWorkspace(String hash, Workspace workspace) {
+    }
+
+    private final String name;
+    private final String description;
+    private final Map<Path, ParsedWorkspace> parsed = new HashMap<>();
+    private List<Path> mergedPaths = List.of();
+    private List<Path> changedPaths = List.of();
+    private Workspace workspace;
+    private MergeProvenance provenance;
+
+    public IncrementalMerge(String name, String description) {
+        this.name = name;
+        this.description = description;
+    }
+
+    /**
+     * Brings the merged workspace up to date with a list of DSL files.
+     * Only the files that are new, or whose content has changed since the previous call, are parsed.
+     * The merged model is rebuilt from the parsed workspaces if anything changed,
+     * so the checks made by {@link WorkspaceTools#merge(List, Model)} always cover every workspace.
+     * If parsing or merging fails, the previous merged workspace is discarded, so the next call fails too,
+     * until the files are fixed.
+     * @return the merged workspace, which is the same instance as before if nothing changed
+     */
+    public Workspace merge(List<Path> paths) throws IOException {
+        final List<Path> normalisedPaths = paths.stream()
+                .map(path -> path.toAbsolutePath().normalize())
+                .collect(Collectors.toList());
+
+        final Map<Path, String> hashes = new HashMap<>();
+        for (Path path : normalisedPaths) {
+            hashes.put(path, contentHash(path));
+        }
+
+        changedPaths = normalisedPaths.stream()
+                .filter(path -> {
+                    final ParsedWorkspace previous = parsed.get(path);
+                    return null == previous || !previous.hash().equals(hashes.get(path));
+                })
+                .collect(Collectors.toList());
+
+        if (null != workspace && changedPaths.isEmpty() && normalisedPaths.equals(mergedPaths)) {
+            return workspace;
+        }
+
+        // The files parsed below are remembered by hash, so the merged workspace must be
+        // forgotten until it has been rebuilt from them
+        workspace = null;
+        provenance = null;
+        mergedPaths = List.of();
+
+        final List<Workspace> changedWorkspaces = WorkspaceTools.parse(changedPaths);
+        for (int i = 0; i < changedPaths.size(); i++) {
+            final Path path = changedPaths.get(i);
+            parsed.put(path, new ParsedWorkspace(hashes.get(path), changedWorkspaces.get(i)));
+        }
+        parsed.keySet().retainAll(hashes.keySet());
+
+        final Workspace merged = new Workspace(name, description);
+        final MergeStatistics statistics = WorkspaceTools.merge(normalisedPaths.stream()
+                .map(path -> parsed.get(path).workspace())
+                .collect(Collectors.toList()), merged.getModel());
+
+        workspace = merged;
+        provenance = statistics.getProvenance();
+        mergedPaths = normalisedPaths;
+        return workspace;
+    }
+
+    /**
+     * @return the merged workspace, or null if nothing has been merged yet, or if the most recent merge failed
+     */
+    public Workspace getWorkspace() {
+        return workspace;
+    }
+
+    /**
+     * @return the workspace each element of the merged workspace was defined in,
+     * or null if there's no merged workspace
+     */
+    public MergeProvenance getProvenance() {
+        return provenance;
+    }
+
+    /**
+     * @return the DSL files found to have changed by the most recent call to {@link #merge(List)}
+     */
+    public List<Path> getChangedPaths() {
+        return changedPaths;
+    }
+
+    /**
+     * Hashes the content of a DSL file, and of the files and directories it references.
+     * Included DSL fragments, and workspaces that are extended, are followed recursively.
+     * @throws NoSuchFileException if a file or directory that is referenced doesn't exist
+     */
+    static String contentHash(Path dslFile) throws IOException {
+        final MessageDigest digest = sha256();
+        hashDsl(dslFile.toAbsolutePath().normalize(), digest, new HashSet<>());
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void hashDsl(Path dslFile, MessageDigest digest, Set<Path> visited) throws IOException {
+        if (!visited.add(dslFile)) {
+            return;
+        }
+        final byte[] dsl = Files.readAllBytes(dslFile);
+        digest.update(dsl);
+
+        final Path directory = Optional.ofNullable(dslFile.getParent()).orElse(Path.of(""));
+        for (String line : new String(dsl, StandardCharsets.UTF_8).split("\\R")) {
+            final Matcher matcher = REFERENCE.matcher(line);
+            if (!matcher.find()) {
+                continue;
+            }
+            final String name = null == matcher.group(2) ? matcher.group(3) : matcher.group(2);
+            if (URL.matcher(name).find()) {
+                // Remote content isn't followed
+                continue;
+            }
+            final Path reference = directory.resolve(name).normalize();
+            if (!Files.exists(reference)) {
+                // Otherwise changes to it would go unnoticed
+                throw new NoSuchFileException(reference.toString(), null, "referenced by " + dslFile);
+            }
+            if (null == matcher.group(1) || "include".equals(matcher.group(1))) {
+                for (Path file : regularFiles(reference)) {
+                    digest.update(reference.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                    hashDsl(file, digest, visited);
+                }
+            } else {
+                hashTree(reference, digest);
+            }
+        }
+    }
+
+    private static List<Path> regularFiles(Path root) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static void hashTree(Path root, MessageDigest digest) throws IOException {
+        for (Path file : regularFiles(root)) {
+            digest.update(root.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+            digest.update(Files.readAllBytes(file));
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.structurizr.model;
+
+import jdk.jfr.*;
+
+/**
+ * JDK Flight Recorder event covering a whole {@link WorkspaceTools#merge}.
+ */
+@Name("com.structurizr.Merge")
+@Label("Workspace Merge")
+@Category({"Structurizr", "Merge"})
+@Description("Merge of a list of workspaces into one model")
+final class MergeEvent extends Event {
+
+    @Label("Workspaces")
+    int workspaces;
+
+    @Label("Elements")
+    int elements;
+
+    @Label("Relationships")
+    int relationships;
+
+    @Label("Externals Resolved")
+    int externalsResolved;
+
+    @Label("Documentation Size")
+    @DataAmount
+    long documentationBytes;
+
+    @Label("Documentation Shared")
+    @DataAmount
+    long documentationBytesSaved;
+}
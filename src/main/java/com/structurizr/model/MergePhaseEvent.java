@@ -0,0 +1,17 @@
+package com.structurizr.model;
+
+import jdk.jfr.*;
+
+/**
+ * JDK Flight Recorder event covering one phase of a merge.
+ * @see MergeStatistics.Phase
+ */
+@Name("com.structurizr.MergePhase")
+@Label("Workspace Merge Phase")
+@Category({"Structurizr", "Merge"})
+@Description("One phase of the merge of a list of workspaces into one model")
+final class MergePhaseEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+}
@@ -0,0 +1,84 @@
+package com.structurizr.model;
+
+import java.util.*;
+
+/**
+ * Records which workspace each merged element was defined in, without changing the elements themselves.
+ * Each element maps to the index of its workspace, held in an array indexed by its (numeric) ID,
+ * rather than a property on every element.
+ */
+public final class MergeProvenance {
+
+    private static final char NONE = 0;
+
+    private final List<String> workspaceNames = new ArrayList<>();
+    private char[] workspaceIndexes = new char[64]; // by element ID, offset by one so that 0 means none
+    private final Map<String, Character> otherIds = new HashMap<>(); // for IDs that aren't numbers
+
+    MergeProvenance() {
+    }
+
+    /**
+     * @return the index of a workspace being merged, in merge order
+     */
+    int addWorkspace(String workspaceName) {
+        if (workspaceNames.size() == Character.MAX_VALUE - 1) {
+            throw new IllegalStateException("At most " + (Character.MAX_VALUE - 1) + " workspaces can be merged");
+        }
+        workspaceNames.add(workspaceName);
+        return workspaceNames.size() - 1;
+    }
+
+    void record(Element element, int workspaceIndex) {
+        final char value = (char) (workspaceIndex + 1);
+        final int id = numericId(element);
+        if (id < 0) {
+            otherIds.put(element.getId(), value);
+            return;
+        }
+        if (id >= workspaceIndexes.length) {
+            workspaceIndexes = Arrays.copyOf(workspaceIndexes, Math.max(id + 1, workspaceIndexes.length * 2));
+        }
+        workspaceIndexes[id] = value;
+    }
+
+    /**
+     * @return the index, in merge order, of the workspace an element was defined in,
+     * or -1 if the element wasn't merged
+     */
+    public int getWorkspaceIndex(Element element) {
+        final int id = numericId(element);
+        final char value = id < 0 ? otherIds.getOrDefault(element.getId(), NONE)
+                : id < workspaceIndexes.length ? workspaceIndexes[id]
+                : NONE;
+        return value - 1;
+    }
+
+    /**
+     * @return the name of the workspace an element was defined in, or null if the element wasn't merged
+     */
+    public String getWorkspaceName(Element element) {
+        final int index = getWorkspaceIndex(element);
+        return index < 0 ? null : workspaceNames.get(index);
+    }
+
+    /**
+     * @return the names of the merged workspaces, in merge order
+     */
+    public List<String> getWorkspaceNames() {
+        return Collections.unmodifiableList(workspaceNames);
+    }
+
+    private static int numericId(Element element) {
+        final String id = element.getId();
+        if (null == id || id.isEmpty() || id.length() > 7) {
+            return -1;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            if (id.charAt(i) < '0' || id.charAt(i) > '9') {
+                return -1;
+            }
+        }
+        return Integer.parseInt(id);
+    }
+}
@@ -0,0 +1,451 @@
+package com.structurizr.model;
+
+import com.structurizr.Workspace;
+import com.structurizr.documentation.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Compact binary snapshots of a merged model, keyed by a hash of the DSL files it was merged from.
+ * Loading a snapshot whose hash matches the inputs avoids parsing and merging the workspaces again.
+ * <p>
+ * A snapshot holds the merged elements, with their attributes, properties
+ * and documentation, including decisions, and the relationships between them,
+ * along with the {@link MergeProvenance} of the elements.
+ * Every string is written once, and referred to by index after that.
+ * The file ends with a copy of the magic number, so that a truncated snapshot is recognised as stale.
+ * Every relationship is written, including implied relationships and those between deployment instances,
+ * as a model only recreates them if it has an implied relationships strategy.
+ * Relationships the model does recreate as others are loaded are not added twice.
+ * <p>
+ * Elements of every type are written as {@link WorkspacePlan.ElementPlan}s, and loaded by the same copy routines as a merge.
+ */
+public final class MergeSnapshot {
+
+    private static final int MAGIC = 0x535a4d53; // "SZMS"
+    private static final int VERSION = 5;
+
+    private static final int NULL_STRING = -1;
+    private static final int NEW_STRING = -2;
+
+    /**
+     * A merged workspace, whether loaded from a snapshot or merged from the DSL files,
+     * with the workspace each of its elements was defined in.
+     */
+    public record Result(Workspace workspace, MergeProvenance provenance) {
+    }
+
+    private MergeSnapshot() {
+    }
+
+    /**
+     * Loads a merged workspace from a snapshot if it was made from the same DSL files,
+     * otherwise parses and merges the DSL files, and writes a new snapshot.
+     */
+    public static Result mergeOrLoad(List<Path> dslFiles, Path snapshot, String name, String description) throws IOException {
+        final String inputHash = inputHash(dslFiles);
+        final Workspace loaded = new Workspace(name, description);
+        final MergeProvenance loadedProvenance = read(snapshot, inputHash, loaded.getModel());
+        if (null != loadedProvenance) {
+            return new Result(loaded, loadedProvenance);
+        }
+
+        // A snapshot that couldn't be loaded may have left part of a model behind
+        final Workspace workspace = new Workspace(name, description);
+        final MergeProvenance provenance = WorkspaceTools.merge(WorkspaceTools.parse(dslFiles), workspace.getModel()).getProvenance();
+        write(workspace.getModel(), provenance, inputHash, snapshot);
+        return new Result(workspace, provenance);
+    }
+
+    /**
+     * Hashes the content of a list of DSL files, and of the documentation and includes they reference.
+     */
+    public static String inputHash(List<Path> dslFiles) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        for (Path dslFile : dslFiles) {
+            digest.update(IncrementalMerge.contentHash(dslFile).getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Writes a snapshot of a merged model.
+     * The file is replaced atomically, so a concurrent reader never sees a partial snapshot.
+     */
+    public static void write(Model model, MergeProvenance provenance, String inputHash, Path file) throws IOException {
+        AtomicFiles.write(file, temporary -> {
+            try (SnapshotWriter writer = new SnapshotWriter(new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary))))) {
+                writer.writeModel(model, provenance, inputHash);
+            }
+        });
+    }
+
+    /**
+     * Reads a snapshot into an empty model, if the snapshot exists and was made from the given inputs.
+     * The file is memory-mapped rather than read through a stream.
+     * A file that isn't a complete snapshot in the current format, such as one written by an older version, is stale,
+     * as is one whose content is corrupt.  The model may then be left partly loaded.
+     * @return the provenance of the loaded elements, or null if the snapshot is missing or stale
+     */
+    public static MergeProvenance read(Path file, String inputHash, Model model) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final SnapshotReader reader = new SnapshotReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            if (!inputHash.equals(reader.readHeader())) {
+                return null;
+            }
+            return reader.readModel(model);
+        } catch (RuntimeException e) {
+            // e.g. BufferUnderflowException if the file is shorter than its content says, despite its trailer,
+            // or an index, ordinal or element that is out of range
+            return null;
+        }
+    }
+
+    private static final class SnapshotWriter implements Closeable {
+
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        private SnapshotWriter(DataOutputStream out) {
+            this.out = out;
+        }
+
+        private void writeModel(Model model, MergeProvenance provenance, String inputHash) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(inputHash);
+
+            out.writeInt(provenance.getWorkspaceNames().size());
+            for (String workspaceName : provenance.getWorkspaceNames()) {
+                writeString(workspaceName);
+            }
+
+            // Elements are written in the order they are to be copied, then in the order they were created
+            final ContentStore attributes = new ContentStore();
+            final Map<Element, WorkspacePlan.ElementPlan> plans = new IdentityHashMap<>();
+            model.getElements().forEach(element -> plans.put(element, WorkspacePlan.plan(element, element.getCanonicalName(), null, attributes)));
+            final List<Element> elements = model.getElements().stream()
+                    .sorted(Comparator.comparing((Element element) -> plans.get(element), ElementImport.ORDER)
+                            .thenComparing(ModelItem::getId, Ids.ORDER))
+                    .toList();
+            final Map<Element, Integer> indexes = new IdentityHashMap<>();
+            out.writeInt(elements.size());
+            for (Element element : elements) {
+                writeElement(element, plans.get(element));
+                out.writeInt(provenance.getWorkspaceIndex(element));
+                indexes.put(element, indexes.size());
+            }
+
+            final List<Relationship> relationships = model.getRelationships().stream()
+                    .sorted(Comparator.comparing(ModelItem::getId, Ids.ORDER))
+                    .toList();
+            out.writeInt(relationships.size());
+            for (Relationship relationship : relationships) {
+                out.writeInt(indexes.get(relationship.getSource()));
+                out.writeInt(indexes.get(relationship.getDestination()));
+                writeString(relationship.getDescription());
+                writeString(relationship.getTechnology());
+                out.writeInt(null == relationship.getInteractionStyle() ? -1 : relationship.getInteractionStyle().ordinal());
+                writeModelItem(relationship);
+            }
+
+            // The trailer marks a complete snapshot
+            out.writeInt(MAGIC);
+        }
+
+        private void writeElement(Element element, WorkspacePlan.ElementPlan plan) throws IOException {
+            writeString(plan.type());
+            writeString(plan.canonicalName());
+            writeString(plan.parentName());
+            out.writeInt(plan.depth());
+            writeString(plan.name());
+            writeString(plan.description());
+            writeString(plan.technology());
+            writeString(plan.group());
+            writeString(plan.environment());
+            writeString(plan.metadata());
+            writeString(plan.instances());
+            writeString(plan.instanceOf());
+            out.writeInt(plan.deploymentGroups().size());
+            for (String deploymentGroup : plan.deploymentGroups()) {
+                writeString(deploymentGroup);
+            }
+            out.writeInt(plan.healthChecks().size());
+            for (WorkspacePlan.HealthCheck healthCheck : plan.healthChecks()) {
+                writeString(healthCheck.name());
+                writeString(healthCheck.url());
+                out.writeInt(healthCheck.interval());
+                out.writeLong(healthCheck.timeout());
+            }
+            if (element instanceof SoftwareSystem softwareSystem) {
+                writeDocumentation(softwareSystem.getDocumentation());
+            }
+            writeModelItem(element);
+        }
+
+        private void writeModelItem(ModelItem item) throws IOException {
+            writeString(item.getTags());
+            writeString(item.getUrl());
+            final Map<String, String> properties = item.getProperties();
+            out.writeInt(properties.size());
+            for (Map.Entry<String, String> property : properties.entrySet()) {
+                writeString(property.getKey());
+                writeString(property.getValue());
+            }
+            final Set<Perspective> perspectives = item.getPerspectives();
+            out.writeInt(perspectives.size());
+            for (Perspective perspective : perspectives) {
+                writeString(perspective.getName());
+                writeString(perspective.getDescription());
+            }
+        }
+
+        private void writeDocumentation(Documentation documentation) throws IOException {
+            final List<Section> sections = documentation.getSections().stream()
+                    .sorted(Comparator.comparing(Section::getOrder))
+                    .toList();
+            out.writeInt(sections.size());
+            for (Section section : sections) {
+                out.writeInt(null == section.getFormat() ? -1 : section.getFormat().ordinal());
+                writeString(section.getFilename());
+                writeString(section.getContent());
+            }
+            out.writeInt(documentation.getImages().size());
+            for (Image image : documentation.getImages()) {
+                writeString(image.getName());
+                writeString(image.getType());
+                writeString(image.getContent());
+            }
+            out.writeInt(documentation.getDecisions().size());
+            for (Decision decision : documentation.getDecisions()) {
+                writeString(decision.getId());
+                writeString(decision.getTitle());
+                writeString(decision.getStatus());
+                out.writeInt(null == decision.getFormat() ? -1 : decision.getFormat().ordinal());
+                out.writeLong(null == decision.getDate() ? Long.MIN_VALUE : decision.getDate().getTime());
+                writeString(decision.getContent());
+                out.writeInt(decision.getLinks().size());
+                for (var link : decision.getLinks()) {
+                    writeString(link.getId());
+                    writeString(link.getDescription());
+                }
+            }
+        }
+
+        private void writeString(String string) throws IOException {
+            if (null == string) {
+                out.writeInt(NULL_STRING);
+                return;
+            }
+            final Integer index = strings.get(string);
+            if (null != index) {
+                out.writeInt(index);
+                return;
+            }
+            strings.put(string, strings.size());
+            final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(NEW_STRING);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    private static final class SnapshotReader {
+
+        private final ByteBuffer buffer;
+        private final List<String> strings = new ArrayList<>();
+
+        private SnapshotReader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * @return the hash of the inputs the snapshot was made from,
+         * or null if the file isn't a complete snapshot in the current format
+         */
+        private String readHeader() {
+            if (buffer.limit() < 12
+                    || buffer.getInt() != MAGIC
+                    || buffer.getInt() != VERSION
+                    || buffer.getInt(buffer.limit() - 4) != MAGIC) {
+                return null;
+            }
+            return readString();
+        }
+
+        private MergeProvenance readModel(Model model) {
+            final MergeProvenance provenance = new MergeProvenance();
+            final int workspaceCount = buffer.getInt();
+            for (int i = 0; i < workspaceCount; i++) {
+                provenance.addWorkspace(readString());
+            }
+
+            final int elementCount = buffer.getInt();
+            final List<Element> elements = new ArrayList<>(Math.min(elementCount, buffer.remaining()));
+            final ElementImport elementImport = new ElementImport(model, new HashMap<>());
+            for (int i = 0; i < elementCount; i++) {
+                final Element element = readElement(elementImport);
+                final int workspaceIndex = buffer.getInt();
+                if (workspaceIndex >= 0) {
+                    provenance.record(element, workspaceIndex);
+                }
+                elements.add(element);
+            }
+
+            final int relationshipCount = buffer.getInt();
+            for (int i = 0; i < relationshipCount; i++) {
+                final Element source = elements.get(buffer.getInt());
+                final Element destination = elements.get(buffer.getInt());
+                final String description = readString();
+                final String technology = readString();
+                final int interactionStyle = buffer.getInt();
+                final Relationship relationship = model.addRelationship(source, destination, description, technology,
+                        interactionStyle < 0 ? null : InteractionStyle.values()[interactionStyle], new String[0]);
+                readModelItem(relationship);
+            }
+            return provenance;
+        }
+
+        private Element readElement(ElementImport elementImport) {
+            final String type = readString();
+            final String canonicalName = readString();
+            final String parentName = readString();
+            final int depth = buffer.getInt();
+            final String name = readString();
+            final String description = readString();
+            final String technology = readString();
+            final String group = readString();
+            final String environment = readString();
+            final String metadata = readString();
+            final String instances = readString();
+            final String instanceOf = readString();
+            final List<String> deploymentGroups = new ArrayList<>();
+            final int deploymentGroupCount = buffer.getInt();
+            for (int i = 0; i < deploymentGroupCount; i++) {
+                deploymentGroups.add(readString());
+            }
+            final List<WorkspacePlan.HealthCheck> healthChecks = new ArrayList<>();
+            final int healthCheckCount = buffer.getInt();
+            for (int i = 0; i < healthCheckCount; i++) {
+                healthChecks.add(new WorkspacePlan.HealthCheck(readString(), readString(), buffer.getInt(), buffer.getLong()));
+            }
+            final Documentation documentation = "SoftwareSystem".equals(type) ? readDocumentation() : null;
+
+            // The tags, URL, properties and perspectives are applied once the element exists
+            final Element element = elementImport.add(new WorkspacePlan.ElementPlan(type, canonicalName, parentName, depth,
+                    name, description, technology, List.of(), group, null, Map.of(), Set.of(),
+                    environment, metadata, instances, instanceOf, deploymentGroups, healthChecks,
+                    documentation, 0));
+            readModelItem(element);
+            return element;
+        }
+
+        /**
+         * Reads the attributes common to elements and relationships, applying them to the item if there is one.
+         * There's no item for a relationship that the model already had as an implied relationship.
+         */
+        private void readModelItem(ModelItem item) {
+            final String tags = readString();
+            final String url = readString();
+            final int propertyCount = buffer.getInt();
+            final Map<String, String> properties = new LinkedHashMap<>();
+            for (int i = 0; i < propertyCount; i++) {
+                properties.put(readString(), readString());
+            }
+            final int perspectiveCount = buffer.getInt();
+            final Map<String, String> perspectives = new LinkedHashMap<>();
+            for (int i = 0; i < perspectiveCount; i++) {
+                perspectives.put(readString(), readString());
+            }
+
+            if (null != item) {
+                item.setTags(tags);
+                item.setUrl(url);
+                item.setProperties(properties);
+                perspectives.forEach(item::addPerspective);
+            }
+        }
+
+        private Documentation readDocumentation() {
+            final Documentation documentation = new Documentation();
+            final int sectionCount = buffer.getInt();
+            for (int i = 0; i < sectionCount; i++) {
+                final int format = buffer.getInt();
+                final String filename = readString();
+                final Section section = new Section(format < 0 ? null : Format.values()[format], readString());
+                section.setFilename(filename);
+                documentation.addSection(section);
+            }
+            final int imageCount = buffer.getInt();
+            for (int i = 0; i < imageCount; i++) {
+                documentation.addImage(new Image(readString(), readString(), readString()));
+            }
+
+            // Links are added once every decision has been read, as they refer to each other by ID
+            final int decisionCount = buffer.getInt();
+            final Map<String, Decision> decisions = new LinkedHashMap<>();
+            final Map<Decision, Map<String, String>> links = new IdentityHashMap<>();
+            for (int i = 0; i < decisionCount; i++) {
+                final Decision decision = new Decision();
+                decision.setId(readString());
+                decision.setTitle(readString());
+                decision.setStatus(readString());
+                final int format = buffer.getInt();
+                decision.setFormat(format < 0 ? null : Format.values()[format]);
+                final long date = buffer.getLong();
+                decision.setDate(Long.MIN_VALUE == date ? null : new Date(date));
+                decision.setContent(readString());
+                final int linkCount = buffer.getInt();
+                final Map<String, String> decisionLinks = new LinkedHashMap<>();
+                for (int j = 0; j < linkCount; j++) {
+                    decisionLinks.put(readString(), readString());
+                }
+                decisions.put(decision.getId(), decision);
+                links.put(decision, decisionLinks);
+            }
+            decisions.values().forEach(decision -> {
+                links.get(decision).forEach((id, description) -> Optional.ofNullable(decisions.get(id))
+                        .ifPresent(linked -> decision.addLink(linked, description)));
+                documentation.addDecision(decision);
+            });
+            return documentation;
+        }
+
+        private String readString() {
+            final int index = buffer.getInt();
+            if (NULL_STRING == index) {
+                return null;
+            }
+            if (NEW_STRING != index) {
+                return strings.get(index);
+            }
+            final byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            final String string = new String(bytes, StandardCharsets.UTF_8);
+            strings.add(string);
+            return string;
+        }
+    }
+}
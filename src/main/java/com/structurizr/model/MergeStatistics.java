@@ -0,0 +1,199 @@
+package com.structurizr.model;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Statistics gathered during a merge: how long each phase took,
+ * and what was merged from each workspace.
+ * Each phase is also recorded as a JDK Flight Recorder event.
+ */
+public class MergeStatistics {
+
+    /**
+     * The phases of a merge, in the order they run.
+     */
+    public enum Phase {
+        /** Planning each workspace in parallel: classifying and collecting elements, copying documentation */
+        COLLECT_ELEMENTS,
+        INSERT_ELEMENTS,
+        RESOLVE_EXTERNALS,
+        COPY_RELATIONSHIPS
+    }
+
+    /**
+     * A relationship declaration that wasn't merged, because the same
+     * (source, destination, description) relationship had already been declared.
+     * @param conflicting true if its technology, interaction style or tags differ from the merged declaration
+     */
+    public record DroppedRelationship(String workspaceName, String source, String destination,
+                                      String description, boolean conflicting) {
+    }
+
+    private final Map<Phase, Duration> phaseDurations = new EnumMap<>(Phase.class);
+    private final Map<String, Map<String, Integer>> elementCounts = new LinkedHashMap<>();
+    private final Map<String, Integer> relationshipCounts = new LinkedHashMap<>();
+    private final List<DroppedRelationship> droppedRelationships = new ArrayList<>();
+    private int externalsResolved;
+    private long documentationBytes;
+    private long documentationBytesSaved;
+    private final MergeProvenance provenance = new MergeProvenance();
+
+    private final MergeEvent mergeEvent = new MergeEvent();
+    private MergePhaseEvent phaseEvent;
+    private Phase currentPhase;
+    private long phaseStart;
+
+    MergeStatistics(int workspaces) {
+        mergeEvent.workspaces = workspaces;
+        mergeEvent.begin();
+    }
+
+    /**
+     * Starts timing a phase, ending the previous one.
+     */
+    void startPhase(Phase phase) {
+        endPhase();
+        currentPhase = phase;
+        phaseEvent = new MergePhaseEvent();
+        phaseEvent.phase = phase.name();
+        phaseEvent.begin();
+        phaseStart = System.nanoTime();
+    }
+
+    private void endPhase() {
+        if (null != currentPhase) {
+            phaseDurations.put(currentPhase, Duration.ofNanos(System.nanoTime() - phaseStart));
+            phaseEvent.commit();
+            currentPhase = null;
+            phaseEvent = null;
+        }
+    }
+
+    /**
+     * Ends the last phase, and records the merge as a whole.
+     */
+    void finish() {
+        endPhase();
+        mergeEvent.elements = getElementCount();
+        mergeEvent.relationships = getRelationshipCount();
+        mergeEvent.externalsResolved = externalsResolved;
+        mergeEvent.documentationBytes = documentationBytes;
+        mergeEvent.documentationBytesSaved = documentationBytesSaved;
+        mergeEvent.commit();
+    }
+
+    void countElement(String workspaceName, String type) {
+        elementCounts.computeIfAbsent(workspaceName, name -> new TreeMap<>())
+                .merge(type, 1, Integer::sum);
+    }
+
+    void countRelationship(String workspaceName) {
+        relationshipCounts.merge(workspaceName, 1, Integer::sum);
+    }
+
+    void dropRelationship(DroppedRelationship relationship) {
+        droppedRelationships.add(relationship);
+    }
+
+    void countExternalsResolved(int count) {
+        externalsResolved += count;
+    }
+
+    void countDocumentationBytes(long bytes) {
+        documentationBytes += bytes;
+    }
+
+    void countDocumentationBytesSaved(long bytes) {
+        documentationBytesSaved += bytes;
+    }
+
+    /**
+     * @return the time taken by each phase that has completed
+     */
+    public Map<Phase, Duration> getPhaseDurations() {
+        return Collections.unmodifiableMap(phaseDurations);
+    }
+
+    /**
+     * @return the number of elements merged from each workspace, by element type
+     */
+    public Map<String, Map<String, Integer>> getElementCounts() {
+        return Collections.unmodifiableMap(elementCounts);
+    }
+
+    /**
+     * @return the number of relationships merged from each workspace
+     */
+    public Map<String, Integer> getRelationshipCounts() {
+        return Collections.unmodifiableMap(relationshipCounts);
+    }
+
+    /**
+     * @return the relationship declarations that weren't merged, as they duplicate another declaration
+     */
+    public List<DroppedRelationship> getDroppedRelationships() {
+        return Collections.unmodifiableList(droppedRelationships);
+    }
+
+    /**
+     * @return the number of elements merged, by element type
+     */
+    public Map<String, Integer> getElementCountsByType() {
+        final Map<String, Integer> counts = new TreeMap<>();
+        elementCounts.values().forEach(byType -> byType.forEach((type, count) -> counts.merge(type, count, Integer::sum)));
+        return counts;
+    }
+
+    public int getElementCount() {
+        return elementCounts.values().stream()
+                .flatMap(byType -> byType.values().stream())
+                .mapToInt(Integer::intValue)
+                .sum();
+    }
+
+    public int getRelationshipCount() {
+        return relationshipCounts.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * @return the number of 'External' declarations resolved by a definitive element
+     */
+    public int getExternalsResolved() {
+        return externalsResolved;
+    }
+
+    /**
+     * @return the size of the documentation content copied, in UTF-8 bytes
+     */
+    public long getDocumentationBytes() {
+        return documentationBytes;
+    }
+
+    /**
+     * @return the size of the duplicate documentation content that was shared rather than copied, in UTF-8 bytes
+     */
+    public long getDocumentationBytesSaved() {
+        return documentationBytesSaved;
+    }
+
+    /**
+     * @return the workspace each merged element was defined in
+     */
+    public MergeProvenance getProvenance() {
+        return provenance;
+    }
+
+    @Override
+    public String toString() {
+        return "MergeStatistics{" +
+                "phaseDurations=" + phaseDurations +
+                ", elements=" + getElementCount() +
+                ", relationships=" + getRelationshipCount() +
+                ", droppedRelationships=" + droppedRelationships.size() +
+                ", externalsResolved=" + externalsResolved +
+                ", documentationBytes=" + documentationBytes +
+                ", documentationBytesSaved=" + documentationBytesSaved +
+                '}';
+    }
+}
@@ -0,0 +1,54 @@
+package com.structurizr.model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The result of checking whether a list of workspaces can be merged,
+ * detailing every problem found rather than just the first.
+ * @see WorkspaceTools#validate(List)
+ */
+public class MergeValidation {
+
+    public enum ProblemType {
+        /** An element is declared 'External', but isn't defined by any workspace */
+        UNRESOLVED_EXTERNAL,
+        /** An element, or a top-level name, is defined by more than one workspace */
+        DUPLICATE_NAME
+    }
+
+    /**
+     * @param name the canonical name of the element, or the duplicated top-level name
+     * @param workspaceNames the workspaces where the problem occurs
+     */
+    public record Problem(ProblemType type, String name, List<String> workspaceNames) {
+    }
+
+    private final List<Problem> problems;
+
+    MergeValidation(List<Problem> problems) {
+        this.problems = Collections.unmodifiableList(problems);
+    }
+
+    public boolean isValid() {
+        return problems.isEmpty();
+    }
+
+    public List<Problem> getProblems() {
+        return problems;
+    }
+
+    public List<Problem> getProblems(ProblemType type) {
+        return problems.stream()
+                .filter(problem -> type == problem.type())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public String toString() {
+        return problems.stream()
+                .map(problem -> problem.type() + " " + problem.name() + " in " + String.join(", ", problem.workspaceNames()))
+                .collect(Collectors.joining("\n"));
+    }
+}
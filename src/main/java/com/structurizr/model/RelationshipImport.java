@@ -0,0 +1,87 @@
+package com.structurizr.model;
+
+import com.structurizr.documentation.ContentStore;
+
+import java.util.*;
+
+/**
+ * Bulk import of relationships into a merged model.
+ * Endpoints are resolved with one lookup each in the index of merged elements,
+ * and duplicate (source, destination, description) declarations are detected with a hash set,
+ * so that they can be reported, rather than left to the model.
+ */
+final class RelationshipImport {
+
+    private record Key(String sourceId, String destinationId, String description) {
+    }
+
+    private record Pending(String workspaceName, WorkspacePlan.RelationshipPlan relationship, Element source, Element destination) {
+    }
+
+    private final Model model;
+    private final Map<String, Element> mergedElements;
+    private final Map<Key, WorkspacePlan.RelationshipPlan> declared = new HashMap<>();
+    private final List<Pending> pending = new ArrayList<>();
+    private final List<MergeStatistics.DroppedRelationship> dropped = new ArrayList<>();
+
+    /**
+     * @param mergedElements the merged elements, by canonical name
+     */
+    RelationshipImport(Model model, Map<String, Element> mergedElements) {
+        this.model = model;
+        this.mergedElements = mergedElements;
+        final ContentStore attributes = new ContentStore();
+        model.getRelationships().forEach(relationship -> declared.put(
+                new Key(relationship.getSourceId(), relationship.getDestinationId(), relationship.getDescription()),
+                WorkspacePlan.plan(relationship, attributes)));
+    }
+
+    /**
+     * Queues a relationship from a workspace, unless the same relationship has already been declared.
+     * The first declaration wins; any others are reported as dropped.
+     * @throws RuntimeException if the source or destination hasn't been merged
+     */
+    void add(String workspaceName, WorkspacePlan.RelationshipPlan relationship) {
+        final Element source = resolve(relationship.sourceName(), "Source");
+        final Element destination = resolve(relationship.destinationName(), "Destination");
+
+        final WorkspacePlan.RelationshipPlan first = declared.putIfAbsent(
+                new Key(source.getId(), destination.getId(), relationship.description()), relationship);
+        if (null != first) {
+            dropped.add(new MergeStatistics.DroppedRelationship(workspaceName,
+                    source.getCanonicalName(), destination.getCanonicalName(), relationship.description(),
+                    !hasSameDetails(first, relationship)));
+            return;
+        }
+        pending.add(new Pending(workspaceName, relationship, source, destination));
+    }
+
+    /**
+     * Adds the queued relationships to the model, in the order they were declared.
+     */
+    void apply(MergeStatistics statistics) {
+        for (Pending relationship : pending) {
+            final WorkspacePlan.RelationshipPlan plan = relationship.relationship();
+            final String[] tags = plan.tags().toArray(new String[0]);
+
+            // Take advantage of the package-private Model::addRelationship
+            if (null != model.addRelationship(relationship.source(), relationship.destination(), plan.description(), plan.technology(), plan.interactionStyle(), tags)) {
+                statistics.countRelationship(relationship.workspaceName());
+            }
+        }
+        dropped.forEach(statistics::dropRelationship);
+        pending.clear();
+        dropped.clear();
+    }
+
+    private Element resolve(String name, String role) {
+        return Optional.ofNullable(mergedElements.get(name))
+                .orElseThrow(() -> new RuntimeException(role + " " + name + " has not been defined"));
+    }
+
+    private static boolean hasSameDetails(WorkspacePlan.RelationshipPlan first, WorkspacePlan.RelationshipPlan second) {
+        return Objects.equals(first.technology(), second.technology())
+                && Objects.equals(first.interactionStyle(), second.interactionStyle())
+                && Set.copyOf(first.tags()).equals(Set.copyOf(second.tags()));
+    }
+}
@@ -0,0 +1,94 @@
+package com.structurizr.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.structurizr.Workspace;
+import com.structurizr.io.WorkspaceReaderException;
+import com.structurizr.io.json.JsonReader;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.TimeZone;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streaming JSON export and import of workspaces, e.g. to publish a merged workspace,
+ * and to use published workspaces as merge input in place of DSL source.
+ * <p>
+ * Unlike {@link com.structurizr.io.json.JsonWriter}, which renders the whole document as a string first,
+ * the workspace is serialized token by token straight to a file channel, optionally through gzip.
+ * The output is the same JSON, and can be read by the usual Structurizr tooling.
+ */
+public final class WorkspaceJson {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Configured as com.structurizr.io.json.JsonWriter, without indentation
+    private static final ObjectMapper OBJECT_MAPPER = createObjectMapper();
+
+    private WorkspaceJson() {
+    }
+
+    /**
+     * Writes a workspace as JSON.
+     * The file is replaced atomically, so a concurrent reader never sees a partial workspace.
+     * @param gzip whether to gzip the JSON, conventionally in a file named "*.json.gz"
+     */
+    public static void write(Workspace workspace, Path file, boolean gzip) throws IOException {
+        AtomicFiles.write(file, temporary -> {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 OutputStream out = gzip
+                         ? new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE)
+                         : new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE)) {
+                OBJECT_MAPPER.writeValue(out, workspace);
+            }
+        });
+    }
+
+    /**
+     * Reads a workspace from JSON, which may be gzipped, parsing it as it is streamed from the file.
+     */
+    public static Workspace read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             Reader reader = new InputStreamReader(open(Channels.newInputStream(channel)), StandardCharsets.UTF_8)) {
+            return new JsonReader().read(reader);
+        } catch (WorkspaceReaderException e) {
+            throw new IOException(file + " is not a valid workspace: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return true if the file name suggests JSON, i.e. "*.json" or "*.json.gz"
+     */
+    public static boolean isJson(Path file) {
+        final String name = file.getFileName().toString();
+        return name.endsWith(".json") || name.endsWith(".json.gz");
+    }
+
+    // Detects gzip from its magic number, rather than trusting the file name
+    private static InputStream open(InputStream channel) throws IOException {
+        final BufferedInputStream in = new BufferedInputStream(channel, BUFFER_SIZE);
+        in.mark(2);
+        final boolean gzip = in.read() == 0x1f && in.read() == 0x8b;
+        in.reset();
+        return gzip ? new GZIPInputStream(in, BUFFER_SIZE) : in;
+    }
+
+    private static ObjectMapper createObjectMapper() {
+        final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        final ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_EMPTY);
+        objectMapper.setDateFormat(dateFormat);
+        return objectMapper;
+    }
+}
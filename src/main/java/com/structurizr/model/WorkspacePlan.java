@@ -0,0 +1,175 @@
+package com.structurizr.model;
+
+import com.structurizr.Workspace;
+import com.structurizr.documentation.ContentStore;
+import com.structurizr.documentation.Documentation;
+import com.structurizr.documentation.DocumentationTools;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * An immutable plan for merging one workspace.
+ * Building a plan only reads the workspace, and never touches the target model,
+ * so the workspaces being merged can be planned in parallel.
+ * @param elements the definitive elements, in the order they are to be copied
+ * @param externals the canonical names of the elements declared 'External'
+ * @param relationships the definitive relationships
+ */
+record WorkspacePlan(String workspaceName,
+                     List<ElementPlan> elements,
+                     List<String> externals,
+                     List<RelationshipPlan> relationships) {
+
+    /**
+     * A snapshot of the attributes of a definitive element, of any type.
+     * The tags, group, technology and properties are interned, as the same few values recur across elements.
+     * Attributes that don't apply to the type of element are null, or empty.
+     * Software systems also carry a copy of their documentation.
+     * @param depth the number of parents the element has
+     * @param instanceOf the canonical name of the software system or container a deployment instance is an instance of
+     */
+    record ElementPlan(String type, String canonicalName, String parentName, int depth,
+                       String name, String description, String technology,
+                       List<String> tags, String group, String url,
+                       Map<String, String> properties, Set<Perspective> perspectives,
+                       String environment, String metadata, String instances, String instanceOf,
+                       List<String> deploymentGroups, List<HealthCheck> healthChecks,
+                       Documentation documentation, long documentationBytes) {
+    }
+
+    record HealthCheck(String name, String url, int interval, long timeout) {
+    }
+
+    /**
+     * A snapshot of a definitive relationship, with the canonical names of its endpoints.
+     * The technology and tags are interned, as they are for elements.
+     */
+    record RelationshipPlan(String sourceName, String destinationName, String description,
+                            String technology, InteractionStyle interactionStyle, List<String> tags) {
+    }
+
+    /**
+     * Plans the merge of a workspace.
+     * @param inScope tests the canonical name of each element; elements outside the scope,
+     *                and relationships to or from them, are left out of the plan
+     * @param contentStore shared by the workspaces being merged, which may be planned concurrently
+     * @param attributes interns attribute strings, shared in the same way
+     */
+    static WorkspacePlan of(Workspace workspace, Predicate<String> inScope, ContentStore contentStore, ContentStore attributes) {
+        final String workspaceName = workspace.getName();
+        final Model model = workspace.getModel();
+        final Set<Element> declaredExternals = WorkspaceTools.findDeclaredExternals(model);
+
+        // Collect all elements not declared External
+        final List<ElementPlan> elements = new ArrayList<>();
+        final List<String> externals = new ArrayList<>();
+        for (Element element : model.getElements()) {
+            final String canonicalName = element.getCanonicalName();
+            if (!inScope.test(canonicalName)) {
+                continue;
+            }
+            if (declaredExternals.contains(element)) {
+                externals.add(canonicalName);
+            } else {
+                elements.add(plan(element, canonicalName, contentStore, attributes));
+            }
+        }
+        elements.sort(ElementImport.ORDER);
+
+        // A definitive relationship is one that is not tagged External,
+        // and whose source is definitive
+        final List<RelationshipPlan> relationships = new ArrayList<>();
+        for (Relationship relationship : model.getRelationships()) {
+            if (!relationship.hasTag(WorkspaceTools.EXTERNAL_TAG) && !declaredExternals.contains(relationship.getSource())) {
+                final String sourceName = relationship.getSource().getCanonicalName();
+                final String destinationName = relationship.getDestination().getCanonicalName();
+                if (inScope.test(sourceName) && inScope.test(destinationName)) {
+                    relationships.add(plan(relationship, attributes));
+                }
+            }
+        }
+
+        return new WorkspacePlan(workspaceName,
+                Collections.unmodifiableList(elements),
+                Collections.unmodifiableList(externals),
+                Collections.unmodifiableList(relationships));
+    }
+
+    /**
+     * Snapshots the attributes of a relationship.
+     */
+    static RelationshipPlan plan(Relationship relationship, ContentStore attributes) {
+        return new RelationshipPlan(
+                relationship.getSource().getCanonicalName(),
+                relationship.getDestination().getCanonicalName(),
+                relationship.getDescription(),
+                attributes.store(relationship.getTechnology()),
+                relationship.getInteractionStyle(),
+                relationship.getTagsAsSet().stream().map(attributes::store).toList());
+    }
+
+    /**
+     * Snapshots the attributes of an element.
+     * @param contentStore stores documentation content, or null to leave documentation out of the plan
+     */
+    static ElementPlan plan(Element element, String canonicalName, ContentStore contentStore, ContentStore attributes) {
+        final String technology = element instanceof Container container ? container.getTechnology()
+                : element instanceof Component component ? component.getTechnology()
+                : element instanceof DeploymentNode deploymentNode ? deploymentNode.getTechnology()
+                : element instanceof InfrastructureNode infrastructureNode ? infrastructureNode.getTechnology()
+                : null;
+        final String group = element instanceof GroupableElement groupableElement ? groupableElement.getGroup() : null;
+        final String environment = element instanceof DeploymentElement deploymentElement ? deploymentElement.getEnvironment() : null;
+        final Element instanceOf = element instanceof SoftwareSystemInstance softwareSystemInstance ? softwareSystemInstance.getSoftwareSystem()
+                : element instanceof ContainerInstance containerInstance ? containerInstance.getContainer()
+                : null;
+
+        List<String> deploymentGroups = List.of();
+        List<HealthCheck> healthChecks = List.of();
+        if (element instanceof StaticStructureElementInstance instance) {
+            deploymentGroups = instance.getDeploymentGroups().stream().map(attributes::store).toList();
+            healthChecks = instance.getHealthChecks().stream()
+                    .map(healthCheck -> new HealthCheck(healthCheck.getName(), healthCheck.getUrl(), healthCheck.getInterval(), healthCheck.getTimeout()))
+                    .toList();
+        }
+
+        int depth = 0;
+        for (Element parent = element.getParent(); null != parent; parent = parent.getParent()) {
+            depth++;
+        }
+
+        Documentation documentation = null;
+        long documentationBytes = 0;
+        if (element instanceof SoftwareSystem softwareSystem && null != contentStore) {
+            documentation = new Documentation();
+            documentationBytes = DocumentationTools.copy(softwareSystem.getDocumentation(), documentation, contentStore);
+        }
+
+        final Map<String, String> properties = new LinkedHashMap<>();
+        element.getProperties().forEach((key, value) -> properties.put(attributes.store(key), attributes.store(value)));
+
+        // Note: the getters create a (shallow) copy of the collections
+        return new ElementPlan(
+                element.getClass().getSimpleName(),
+                canonicalName,
+                null == element.getParent() ? null : element.getParent().getCanonicalName(),
+                depth,
+                element.getName(),
+                element.getDescription(),
+                attributes.store(technology),
+                element.getTagsAsSet().stream().map(attributes::store).toList(),
+                attributes.store(group),
+                element.getUrl(),
+                Collections.unmodifiableMap(properties),
+                Collections.unmodifiableSet(element.getPerspectives()),
+                attributes.store(environment),
+                element instanceof CustomElement customElement ? customElement.getMetadata() : null,
+                element instanceof DeploymentNode deploymentNode ? deploymentNode.getInstances() : null,
+                null == instanceOf ? null : instanceOf.getCanonicalName(),
+                deploymentGroups,
+                healthChecks,
+                documentation,
+                documentationBytes);
+    }
+}
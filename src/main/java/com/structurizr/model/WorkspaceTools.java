@@ -2,10 +2,21 @@ package com.structurizr.model;
 
 import com.structurizr.Workspace;
 import com.structurizr.documentation.*;
+import com.structurizr.dsl.StructurizrDslParser;
 
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Tools for working with Structurizr workspaces.
@@ -17,134 +28,348 @@ public class WorkspaceTools {
     private WorkspaceTools() {
     }
 
+    /**
+     * Parses the DSL files in a directory whose names match a glob pattern,
+     * and merges the resulting workspaces into one model.
+     * @see #parse(Path, String)
+     * @see #merge(List, Model)
+     */
+    public static MergeStatistics merge(Path directory, String glob, Model model) throws IOException {
+        return merge(parse(directory, glob), model);
+    }
+
+    /**
+     * Parses the DSL files in a directory whose names match a glob pattern, e.g. "*.dsl" or "*.{dsl,json}".
+     * The files are parsed in order of their paths.
+     * @see #parse(List)
+     */
+    public static List<Workspace> parse(Path directory, String glob) throws IOException {
+        final List<Path> paths;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            paths = StreamSupport.stream(stream.spliterator(), false)
+                    .filter(Files::isRegularFile)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        return parse(paths);
+    }
+
+    /**
+     * Parses DSL files concurrently, using one parser per file.
+     * Previously published workspace JSON ("*.json" or "*.json.gz") is read instead of parsed.
+     * The workspaces are returned in the same order as the paths, so merging them is deterministic.
+     * @throws RuntimeException detailing every file that failed to parse
+     */
+    public static List<Workspace> parse(List<Path> paths) {
+        final int threads = Math.max(1, Math.min(paths.size(), Runtime.getRuntime().availableProcessors()));
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<Workspace>> futures = paths.stream()
+                    .map(path -> executor.submit(() -> {
+                        if (WorkspaceJson.isJson(path)) {
+                            return WorkspaceJson.read(path);
+                        }
+                        final StructurizrDslParser parser = new StructurizrDslParser();
+                        parser.parse(path.toFile());
+                        return parser.getWorkspace();
+                    }))
+                    .collect(Collectors.toList());
+
+            // Wait for every file, rather than stopping at the first failure
+            final List<Workspace> workspaces = new ArrayList<>();
+            final Map<Path, Throwable> failures = new LinkedHashMap<>();
+            for (int i = 0; i < paths.size(); i++) {
+                try {
+                    workspaces.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    failures.put(paths.get(i), e.getCause());
+                }
+            }
+
+            if (!failures.isEmpty()) {
+                final RuntimeException exception = new RuntimeException("The following workspaces failed to parse: "
+                        + failures.entrySet().stream()
+                        .map(failure -> failure.getKey() + " (" + failure.getValue().getMessage() + ")")
+                        .collect(Collectors.joining(", ")));
+                failures.values().forEach(exception::addSuppressed);
+                throw exception;
+            }
+            return workspaces;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while parsing workspaces", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     /**
      * Merges the models from a list of workspaces into one model.
      * Elements tagged as 'External' are not merged.  This allows an 'External'
      * declaration in one workspace to be resolved by a definition in another.
+     * The workspaces themselves are left unchanged.
+     * @return statistics about the merge, including the time taken by each phase,
+     * and the provenance of each merged element
      * @throws RuntimeException if any 'External' declarations don't have a definition
-     * @throws UnsupportedOperationException for element types not yet handled
      */
-    public static void merge(List<Workspace> workspaces, Model model) {
+    public static MergeStatistics merge(List<Workspace> workspaces, Model model) {
+        return merge(workspaces, model, name -> true);
+    }
+
+    /**
+     * Merges only the part of a list of workspaces that is reachable from some root elements.
+     * The scope is found by {@link #findReachable(List, Collection, int)}, and only the elements,
+     * relationships and documentation within it are copied, so the cost of the merge is proportional
+     * to the size of the scope rather than of the whole enterprise.
+     * 'External' declarations outside the scope aren't required to be resolved.
+     * @param roots the canonical names of the root elements, e.g. "SoftwareSystem://Back-office system"
+     * @param hops the number of relationships to follow from the roots
+     * @see #merge(List, Model)
+     */
+    public static MergeStatistics merge(List<Workspace> workspaces, Model model, Collection<String> roots, int hops) {
+        final Set<String> scope = findReachable(workspaces, roots, hops);
+        return merge(workspaces, model, scope::contains);
+    }
 
-        // An element is declared external if it, or any parent has the External tag
-        final Predicate<Element> isDeclaredExternal = element -> {
-            for (Element e = element; null != e; e = e.getParent()) {
-                if (e.hasTag(EXTERNAL_TAG)) {
-                    return true;
+    private static MergeStatistics merge(List<Workspace> workspaces, Model model, Predicate<String> inScope) {
+        final MergeStatistics statistics = new MergeStatistics(workspaces.size());
+
+        // The events for a merge that fails are committed too, up to the phase that failed
+        try {
+            // Plan the merge of each workspace in parallel, on the fork/join pool.
+            // Planning classifies the elements, snapshots their attributes, copies documentation
+            // and collects relationships, but only reads the workspaces, so the model is untouched
+            statistics.startPhase(MergeStatistics.Phase.COLLECT_ELEMENTS);
+            final ContentStore contentStore = new ContentStore();
+            final ContentStore attributes = new ContentStore();
+            final List<WorkspacePlan> plans = workspaces.parallelStream()
+                    .map(workspace -> WorkspacePlan.of(workspace, inScope, contentStore, attributes))
+                    .collect(Collectors.toList());
+            final MergeProvenance provenance = statistics.getProvenance();
+            plans.forEach(plan -> provenance.addWorkspace(plan.workspaceName()));
+
+            // The rest of the merge applies the plans, in workspace order, on this thread
+            // as Model isn't thread-safe
+
+            // Index of the merged elements by canonical name, maintained as elements are added.
+            // Model::getElementWithCanonicalName scans the whole model, so using it for
+            // every lookup makes the merge quadratic in the size of the model
+            final Map<String, Element> mergedElements = new HashMap<>();
+            model.getElements().forEach(element -> mergedElements.put(element.getCanonicalName(), element));
+
+            // Copy the elements of every workspace in one pass, parents first,
+            // using the copy routine for each type of element
+            statistics.startPhase(MergeStatistics.Phase.INSERT_ELEMENTS);
+            record PendingElement(int workspaceIndex, WorkspacePlan.ElementPlan element) {
+            }
+            final List<PendingElement> pending = new ArrayList<>();
+            for (int i = 0; i < plans.size(); i++) {
+                for (WorkspacePlan.ElementPlan element : plans.get(i).elements()) {
+                    pending.add(new PendingElement(i, element));
                 }
             }
-            return false;
-        };
-        final Predicate<Element> isDefinitiveElement = Predicate.not(isDeclaredExternal);
-
-        // Collect all workspace elements not declared External,
-        // recording the workspace name as a property on every element
-        final Map<String, List<Element>> elements =
-                workspaces.stream()
-                        .flatMap(workspace -> workspace.getModel().getElements().stream()
-                                .peek(element -> element.addProperty("workspace-name", workspace.getName())))
-                        .filter(isDefinitiveElement)
-                        .collect(Collectors.groupingBy(element -> element.getClass().getSimpleName()));
-
-        // Add each type of element to the merged model
-        // There's no generic way to do this, so use the appropriate Model method
-        // Also, adding elements in a hierarchical order allows parents to be resolved
-        // TODO: Cover remaining element classes.  Currently only StaticStructureElements are copied
-        Optional.ofNullable(elements.get("Person")).ifPresent(persons -> persons.stream()
-                .map(element -> (Person) element)
-                .forEach(person ->
-                        copyAttributes(person, model.addPerson(Location.Unspecified, person.getName(), person.getDescription()))
-                ));
-
-        Optional.ofNullable(elements.get("SoftwareSystem")).ifPresent(systems -> systems.stream()
-                .map(element -> (SoftwareSystem) element)
-                .forEach(softwareSystem -> {
-                    final SoftwareSystem newSoftwareSystem = model.addSoftwareSystem(Location.Unspecified, softwareSystem.getName(), softwareSystem.getDescription());
-                    copyAttributes(softwareSystem, newSoftwareSystem);
-                    final Documentation documentation = new Documentation();
-                    DocumentationTools.copy(softwareSystem.getDocumentation(), documentation);
-                    newSoftwareSystem.setDocumentation(documentation);
-                }));
-
-        Optional.ofNullable(elements.get("Container")).ifPresent(containers -> containers.stream()
-                .map(element -> (Container) element)
-                .forEach(container -> {
-                    final SoftwareSystem parent = (SoftwareSystem) model.getElementWithCanonicalName(container.getParent().getCanonicalName());
-                    copyAttributes(container, model.addContainer(parent, container.getName(), container.getDescription(), container.getTechnology()));
-                }));
-
-        Optional.ofNullable(elements.get("Component")).ifPresent(components -> components.stream()
-                .map(element -> (Component) element)
-                .forEach(component -> {
-                    final Container parent = (Container) model.getElementWithCanonicalName(component.getParent().getCanonicalName());
-                    copyAttributes(component, model.addComponent(parent, component.getName(), component.getDescription(), component.getTechnology()));
-                }));
-
-        // Throw exception if any unsupported types are present
-        final List<String> supported = List.of("Person", "SoftwareSystem", "Container", "Component");
-        final List<String> unsupported = elements.keySet().stream()
-                .filter(s -> !supported.contains(s))
-                .collect(Collectors.toList());
+            // Each plan is already in order, so the sort only merges them
+            pending.sort(Comparator.comparing(PendingElement::element, ElementImport.ORDER));
+
+            final ElementImport elementImport = new ElementImport(model, mergedElements);
+            for (PendingElement element : pending) {
+                final WorkspacePlan plan = plans.get(element.workspaceIndex());
+                statistics.countElement(plan.workspaceName(), element.element().type());
+                final Element copy = elementImport.add(element.element());
+                provenance.record(copy, element.workspaceIndex());
+                statistics.countDocumentationBytes(element.element().documentationBytes());
+            }
+
+            statistics.countDocumentationBytesSaved(contentStore.getBytesSaved());
+
+            // Throw exception if any externals are unresolved
+            statistics.startPhase(MergeStatistics.Phase.RESOLVE_EXTERNALS);
+            final List<String> unresolvedExternals = plans.stream()
+                    .flatMap(plan -> plan.externals().stream())
+                    .filter(name -> !mergedElements.containsKey(name))
+                    .sorted()
+                    .collect(Collectors.toList());
 
-        if (!unsupported.isEmpty()) {
-            throw new UnsupportedOperationException("The following element types are currently unsupported: "
-                    + String.join(", ", unsupported));
+            if (!unresolvedExternals.isEmpty()) {
+                throw new RuntimeException("The following elements are declared External, but aren't defined anywhere: "
+                        + String.join(", ", unresolvedExternals));
+            }
+            plans.forEach(plan -> statistics.countExternalsResolved(plan.externals().size()));
+
+            // Copy the relationships from all workspaces, dropping duplicate declarations
+            // Note: this will fail if the source or destination hasn't been merged,
+            // although in practice this should be covered by previous checks
+            statistics.startPhase(MergeStatistics.Phase.COPY_RELATIONSHIPS);
+            final RelationshipImport relationshipImport = new RelationshipImport(model, mergedElements);
+            plans.forEach(plan -> plan.relationships().forEach(relationship ->
+                    relationshipImport.add(plan.workspaceName(), relationship)));
+            relationshipImport.apply(statistics);
+
+            return statistics;
+        } finally {
+            statistics.finish();
         }
+    }
 
-        // Throw exception if any externals are unresolved
-        final List<String> unresolvedExternals = workspaces.stream()
-                .map(Workspace::getModel)
-                .map(Model::getElements)
-                .flatMap(Collection::stream)
-                .filter(isDeclaredExternal)
-                .map(Element::getCanonicalName)
-                .filter(name -> null == model.getElementWithCanonicalName(name))
+    /**
+     * Finds the canonical names of the elements reachable from some root elements,
+     * following relationships in either direction from any workspace.
+     * The roots and their children are reached first, then each hop adds the elements related
+     * to those reached by the previous hop.  Finally, the parents of every element reached are added,
+     * along with the software systems and containers that any deployment instances reached are instances of,
+     * so that every element can be resolved.
+     * @param roots the canonical names of the root elements
+     * @param hops the number of relationships to follow from the roots
+     * @throws IllegalArgumentException if a root isn't found in any workspace
+     */
+    public static Set<String> findReachable(List<Workspace> workspaces, Collection<String> roots, int hops) {
+        final Map<String, String> parents = new HashMap<>();
+        final Map<String, String> instanceOf = new HashMap<>();
+        final Map<String, Set<String>> children = new HashMap<>();
+        final Map<String, Set<String>> neighbours = new HashMap<>();
+        for (Workspace workspace : workspaces) {
+            for (Element element : workspace.getModel().getElements()) {
+                final String name = element.getCanonicalName();
+                final String parentName = null == element.getParent() ? null : element.getParent().getCanonicalName();
+                parents.put(name, parentName);
+                if (element instanceof SoftwareSystemInstance instance) {
+                    instanceOf.put(name, instance.getSoftwareSystem().getCanonicalName());
+                } else if (element instanceof ContainerInstance instance) {
+                    instanceOf.put(name, instance.getContainer().getCanonicalName());
+                }
+                if (null != parentName) {
+                    children.computeIfAbsent(parentName, parent -> new HashSet<>()).add(name);
+                }
+            }
+            for (Relationship relationship : workspace.getModel().getRelationships()) {
+                final String source = relationship.getSource().getCanonicalName();
+                final String destination = relationship.getDestination().getCanonicalName();
+                neighbours.computeIfAbsent(source, name -> new HashSet<>()).add(destination);
+                neighbours.computeIfAbsent(destination, name -> new HashSet<>()).add(source);
+            }
+        }
+
+        final List<String> unknownRoots = roots.stream()
+                .filter(root -> !parents.containsKey(root))
                 .sorted()
                 .collect(Collectors.toList());
+        if (!unknownRoots.isEmpty()) {
+            throw new IllegalArgumentException("The following roots aren't defined in any workspace: "
+                    + String.join(", ", unknownRoots));
+        }
 
-        if (!unresolvedExternals.isEmpty()) {
-            throw new RuntimeException("The following elements are declared External, but aren't defined anywhere: "
-                    + String.join(", ", unresolvedExternals));
+        // Start from the roots, and everything within them
+        final Set<String> reached = new HashSet<>();
+        List<String> frontier = new ArrayList<>();
+        final Deque<String> descendants = new ArrayDeque<>(roots);
+        while (!descendants.isEmpty()) {
+            final String name = descendants.pop();
+            if (reached.add(name)) {
+                frontier.add(name);
+                descendants.addAll(children.getOrDefault(name, Set.of()));
+            }
         }
 
-        // A definitive relationship is one that is not tagged External,
-        // and whose source is definitive
-        final Predicate<Relationship> isDefinitiveRelationship =
-                relationship -> !relationship.hasTag(EXTERNAL_TAG)
-                        && isDefinitiveElement.test(relationship.getSource())
-                ;
-
-        // Copy the relationships from all workspaces
-        // Note: this will fail if the source or destination hasn't been merged,
-        // although in practice this should be covered by previous checks
-        workspaces.stream()
-                .map(Workspace::getModel)
-                .map(Model::getRelationships)
-                .flatMap(Collection::stream)
-                .filter(isDefinitiveRelationship)
-                .forEach(relationship -> {
-                    final String sourceName = relationship.getSource().getCanonicalName();
-                    final String destinationName = relationship.getDestination().getCanonicalName();
-
-                    final Element source = Optional.ofNullable(model.getElementWithCanonicalName(sourceName))
-                            .orElseThrow(() -> new RuntimeException("Source " + sourceName + " has not been defined"));
-
-                    final Element destination = Optional.ofNullable(model.getElementWithCanonicalName(destinationName))
-                            .orElseThrow(() -> new RuntimeException("Destination " + destinationName + " has not been defined"));
-
-                    final String[] tags = relationship.getTagsAsSet().toArray(new String[0]);
-
-                    // Take advantage of the package-private Model::addRelationship
-                    model.addRelationship(source, destination, relationship.getDescription(), relationship.getTechnology(), relationship.getInteractionStyle(), tags);
-                });
+        // Follow relationships, one hop at a time
+        for (int hop = 0; hop < hops && !frontier.isEmpty(); hop++) {
+            final List<String> next = new ArrayList<>();
+            for (String name : frontier) {
+                for (String neighbour : neighbours.getOrDefault(name, Set.of())) {
+                    if (reached.add(neighbour)) {
+                        next.add(neighbour);
+                    }
+                }
+            }
+            frontier = next;
+        }
+
+        // Pull in the parents of everything reached, and what any deployment instances reached are instances of
+        final Deque<String> required = new ArrayDeque<>(reached);
+        while (!required.isEmpty()) {
+            final String name = required.pop();
+            for (String requirement : new String[] { parents.get(name), instanceOf.get(name) }) {
+                if (null != requirement && reached.add(requirement)) {
+                    required.push(requirement);
+                }
+            }
+        }
+        return reached;
     }
 
-    private static void copyAttributes(StaticStructureElement original, StaticStructureElement copy) {
-        copy.setTags(original.getTags());
-        copy.setGroup(original.getGroup());
-        copy.setUrl(original.getUrl());
-        // Note: the getters created a (shallow) copy of the collection
-        copy.setProperties(original.getProperties());
-        copy.setPerspectives(original.getPerspectives());
+    /**
+     * Checks whether a list of workspaces can be merged, without building a model.
+     * Only the canonical names and tags of the elements are examined, and every problem
+     * that {@link #merge(List, Model)} would throw an exception for is reported:
+     * unresolved 'External' declarations and duplicate names.
+     */
+    public static MergeValidation validate(List<Workspace> workspaces) {
+        final Map<String, List<String>> definitions = new HashMap<>();
+        final Map<String, List<String>> topLevelNames = new HashMap<>();
+        final Map<String, List<String>> externals = new HashMap<>();
+
+        for (Workspace workspace : workspaces) {
+            final String workspaceName = workspace.getName();
+            final Set<Element> declaredExternals = findDeclaredExternals(workspace.getModel());
+            for (Element element : workspace.getModel().getElements()) {
+                if (declaredExternals.contains(element)) {
+                    externals.computeIfAbsent(element.getCanonicalName(), name -> new ArrayList<>()).add(workspaceName);
+                    continue;
+                }
+                definitions.computeIfAbsent(element.getCanonicalName(), name -> new ArrayList<>()).add(workspaceName);
+                if (element instanceof Person || element instanceof SoftwareSystem) {
+                    // People and software systems share one namespace
+                    topLevelNames.computeIfAbsent(element.getName(), name -> new ArrayList<>()).add(workspaceName);
+                }
+            }
+        }
+
+        final List<MergeValidation.Problem> problems = new ArrayList<>();
+        externals.entrySet().stream()
+                .filter(external -> !definitions.containsKey(external.getKey()))
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(external -> problems.add(new MergeValidation.Problem(
+                        MergeValidation.ProblemType.UNRESOLVED_EXTERNAL, external.getKey(), external.getValue())));
+        Stream.concat(topLevelNames.entrySet().stream(), definitions.entrySet().stream()
+                        .filter(definition -> !isTopLevel(definition.getKey())))
+                .filter(definition -> definition.getValue().size() > 1)
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(definition -> problems.add(new MergeValidation.Problem(
+                        MergeValidation.ProblemType.DUPLICATE_NAME, definition.getKey(), definition.getValue())));
+
+        return new MergeValidation(problems);
+    }
+
+    private static boolean isTopLevel(String canonicalName) {
+        return canonicalName.startsWith("Person://") || canonicalName.startsWith("SoftwareSystem://");
+    }
+
+    /**
+     * Finds the elements of a model that are declared External.
+     * An element is declared External if it, or any parent, has the External tag.
+     * Each parent is classified before its children, and its result is reused for them,
+     * so the tags of each element are only checked once.
+     */
+    static Set<Element> findDeclaredExternals(Model model) {
+        final Map<Element, Boolean> classified = new IdentityHashMap<>();
+        model.getElements().forEach(element -> classify(element, classified));
+
+        final Set<Element> externals = Collections.newSetFromMap(new IdentityHashMap<>());
+        classified.forEach((element, external) -> {
+            if (external) {
+                externals.add(element);
+            }
+        });
+        return externals;
+    }
+
+    private static boolean classify(Element element, Map<Element, Boolean> classified) {
+        final Boolean known = classified.get(element);
+        if (null != known) {
+            return known;
+        }
+        final Element parent = element.getParent();
+        final boolean external = (null != parent && classify(parent, classified)) || element.hasTag(EXTERNAL_TAG);
+        classified.put(element, external);
+        return external;
     }
 }
@@ -0,0 +1,150 @@
+package com.structurizr.view;
+
+import com.structurizr.Workspace;
+import com.structurizr.model.Element;
+import com.structurizr.model.Relationship;
+import com.structurizr.model.SoftwareSystem;
+
+import java.util.*;
+
+/**
+ * The system landscape, system context and container views of a set of source workspaces,
+ * re-bound to the elements and relationships of the workspace they were merged into.
+ * Views are created in the merged workspace either up front, or one at a time when first requested.
+ */
+public class MergedViews {
+
+    private record Definition(Workspace workspace, View view) {
+    }
+
+    private record RelationshipKey(String sourceId, String destinationId, String description) {
+    }
+
+    private final ViewSet views;
+    private final Map<String, Definition> definitions = new LinkedHashMap<>();
+    private final List<String> duplicateKeys = new ArrayList<>();
+
+    // The ID map: for each source workspace, source element ID -> merged element
+    private final Map<String, Element> mergedElements = new HashMap<>();
+    private final Map<RelationshipKey, Relationship> mergedRelationships = new HashMap<>();
+    private final Map<Workspace, Map<String, Element>> elementIds = new IdentityHashMap<>();
+
+    MergedViews(List<Workspace> workspaces, Workspace merged) {
+        this.views = merged.getViews();
+        merged.getModel().getElements().forEach(element -> mergedElements.put(element.getCanonicalName(), element));
+        merged.getModel().getRelationships().forEach(relationship -> mergedRelationships.putIfAbsent(
+                new RelationshipKey(relationship.getSourceId(), relationship.getDestinationId(), relationship.getDescription()),
+                relationship));
+
+        // The first workspace to define a view key wins
+        for (Workspace workspace : workspaces) {
+            final List<View> sourceViews = new ArrayList<>();
+            sourceViews.addAll(workspace.getViews().getSystemLandscapeViews());
+            sourceViews.addAll(workspace.getViews().getSystemContextViews());
+            sourceViews.addAll(workspace.getViews().getContainerViews());
+            for (View view : sourceViews) {
+                if (null != views.getViewWithKey(view.getKey())
+                        || null != definitions.putIfAbsent(view.getKey(), new Definition(workspace, view))) {
+                    duplicateKeys.add(view.getKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the keys of the views that can be requested, in workspace order
+     */
+    public Set<String> getKeys() {
+        return Collections.unmodifiableSet(definitions.keySet());
+    }
+
+    /**
+     * @return the keys of views that were left out, because an earlier workspace
+     * or the merged workspace itself already has a view with that key
+     */
+    public List<String> getDuplicateKeys() {
+        return Collections.unmodifiableList(duplicateKeys);
+    }
+
+    /**
+     * Gets a view, creating it in the merged workspace on first request.
+     * @return the view, or null if there's no such view,
+     * or if its software system isn't part of the merged model
+     */
+    public View getView(String key) {
+        final View existing = views.getViewWithKey(key);
+        if (null != existing) {
+            return existing;
+        }
+        final Definition definition = definitions.get(key);
+        return null == definition ? null : create(definition);
+    }
+
+    /**
+     * Creates every view that hasn't been requested yet.
+     */
+    public void createAll() {
+        definitions.keySet().forEach(this::getView);
+    }
+
+    private View create(Definition definition) {
+        final Workspace workspace = definition.workspace();
+        final View source = definition.view();
+
+        final View view;
+        if (source instanceof SystemLandscapeView) {
+            view = views.createSystemLandscapeView(source.getKey(), source.getDescription());
+        } else {
+            if (!(resolve(workspace, source.getSoftwareSystem()) instanceof SoftwareSystem softwareSystem)) {
+                return null;
+            }
+            view = source instanceof SystemContextView
+                    ? views.createSystemContextView(softwareSystem, source.getKey(), source.getDescription())
+                    : views.createContainerView(softwareSystem, source.getKey(), source.getDescription());
+        }
+        view.setTitle(source.getTitle());
+
+        // Elements and relationships that weren't merged (e.g. in a scoped merge) are left out
+        for (ElementView elementView : source.getElements()) {
+            final Element element = resolve(workspace, elementView.getElement());
+            if (null != element) {
+                view.addElement(element, false);
+                final ElementView added = view.getElementView(element);
+                if (null != added) {
+                    added.setX(elementView.getX());
+                    added.setY(elementView.getY());
+                }
+            }
+        }
+        for (RelationshipView relationshipView : source.getRelationships()) {
+            final Relationship relationship = resolve(workspace, relationshipView.getRelationship());
+            if (null != relationship) {
+                view.addRelationship(relationship);
+            }
+        }
+
+        final AutomaticLayout layout = source.getAutomaticLayout();
+        if (null != layout) {
+            view.enableAutomaticLayout(layout.getRankDirection(), layout.getRankSeparation(),
+                    layout.getNodeSeparation(), layout.getEdgeSeparation(), layout.isVertices());
+        }
+        return view;
+    }
+
+    private Element resolve(Workspace workspace, Element element) {
+        if (null == element) {
+            return null;
+        }
+        return elementIds.computeIfAbsent(workspace, w -> new HashMap<>())
+                .computeIfAbsent(element.getId(), id -> mergedElements.get(element.getCanonicalName()));
+    }
+
+    private Relationship resolve(Workspace workspace, Relationship relationship) {
+        final Element source = resolve(workspace, relationship.getSource());
+        final Element destination = resolve(workspace, relationship.getDestination());
+        if (null == source || null == destination) {
+            return null;
+        }
+        return mergedRelationships.get(new RelationshipKey(source.getId(), destination.getId(), relationship.getDescription()));
+    }
+}
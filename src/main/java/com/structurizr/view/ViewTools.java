@@ -0,0 +1,46 @@
+package com.structurizr.view;
+
+import com.structurizr.Workspace;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class ViewTools {
+
+    /**
+     * Carries the system landscape, system context and container views of the source workspaces
+     * over to the workspace their models were merged into, along with their element and relationship styles.
+     * @param lazy whether to create each view only when first requested through {@link MergedViews#getView(String)},
+     *             rather than all of them up front
+     */
+    public static MergedViews merge(List<Workspace> workspaces, Workspace merged, boolean lazy) {
+        mergeStyles(workspaces, merged.getViews().getConfiguration().getStyles());
+        final MergedViews views = new MergedViews(workspaces, merged);
+        if (!lazy) {
+            views.createAll();
+        }
+        return views;
+    }
+
+    // The first workspace to style a tag wins
+    private static void mergeStyles(List<Workspace> workspaces, Styles styles) {
+        final Set<String> elementTags = new HashSet<>();
+        final Set<String> relationshipTags = new HashSet<>();
+        styles.getElements().forEach(style -> elementTags.add(style.getTag()));
+        styles.getRelationships().forEach(style -> relationshipTags.add(style.getTag()));
+        for (Workspace workspace : workspaces) {
+            final Styles source = workspace.getViews().getConfiguration().getStyles();
+            for (ElementStyle style : source.getElements()) {
+                if (elementTags.add(style.getTag())) {
+                    styles.add(style);
+                }
+            }
+            for (RelationshipStyle style : source.getRelationships()) {
+                if (relationshipTags.add(style.getTag())) {
+                    styles.add(style);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.structurizr.documentation;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+class DocumentationToolsTest {
+
+    @Test
+    public void givenSharedContent_copiesAreStoredOnce() {
+        final String diagram = "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNk";
+        final Documentation first = documentation(new String(diagram), new String("== Boilerplate"));
+        final Documentation second = documentation(new String(diagram), new String("== Boilerplate"));
+
+        final ContentStore contentStore = new ContentStore();
+        final Documentation firstCopy = new Documentation();
+        final Documentation secondCopy = new Documentation();
+        DocumentationTools.copy(first, firstCopy, contentStore);
+        DocumentationTools.copy(second, secondCopy, contentStore);
+
+        Assertions.assertSame(
+                firstCopy.getImages().iterator().next().getContent(),
+                secondCopy.getImages().iterator().next().getContent()
+        );
+        Assertions.assertSame(
+                firstCopy.getSections().iterator().next().getContent(),
+                secondCopy.getSections().iterator().next().getContent()
+        );
+        Assertions.assertEquals(2, contentStore.size());
+        Assertions.assertEquals(diagram.length() + "== Boilerplate".length(), contentStore.getBytesSaved());
+    }
+
+    @Test
+    public void givenNonAsciiContent_sizeIsMeasuredInUtf8Bytes() {
+        final String content = "Caf\u00e9 \u20ac \ud83d\ude00";
+        Assertions.assertEquals(content.getBytes(StandardCharsets.UTF_8).length, ContentStore.utf8Length(content));
+
+        final Documentation original = documentation("", content);
+        Assertions.assertEquals(content.getBytes(StandardCharsets.UTF_8).length, DocumentationTools.copy(original, new Documentation()));
+    }
+
+    @Test
+    public void givenLinkedDecisions_copiesThemWithRemappedIds() {
+        final Decision first = decision("1", "Use a relational database");
+        final Decision second = decision("2", "Use PostgreSQL");
+        second.addLink(first, "Refines");
+        final Documentation original = new Documentation();
+        original.addDecision(first);
+        original.addDecision(second);
+
+        // The copy already has a decision using ID 1
+        final Documentation copy = new Documentation();
+        copy.addDecision(decision("1", "Existing decision"));
+
+        final ContentStore contentStore = new ContentStore();
+        DocumentationTools.copy(original, copy, contentStore);
+
+        final Map<String, Decision> decisions = copy.getDecisions().stream()
+                .collect(Collectors.toMap(Decision::getTitle, Function.identity()));
+        final Decision firstCopy = decisions.get("Use a relational database");
+        final Decision secondCopy = decisions.get("Use PostgreSQL");
+        Assertions.assertEquals("1", decisions.get("Existing decision").getId());
+        Assertions.assertEquals("2", firstCopy.getId());
+        Assertions.assertEquals("3", secondCopy.getId());
+        Assertions.assertEquals(
+                List.of(firstCopy.getId() + " Refines"),
+                secondCopy.getLinks().stream().map(link -> link.getId() + " " + link.getDescription()).toList()
+        );
+        Assertions.assertSame(first.getContent(), firstCopy.getContent());
+    }
+
+    private static Decision decision(String id, String title) {
+        final Decision decision = new Decision();
+        decision.setId(id);
+        decision.setTitle(title);
+        decision.setDate(new Date());
+        decision.setStatus("Accepted");
+        decision.setFormat(Format.Markdown);
+        decision.setContent("## " + title);
+        return decision;
+    }
+
+    private static Documentation documentation(String image, String section) {
+        final Documentation documentation = new Documentation();
+        documentation.addImage(new Image("diagram.png", "image/png", image));
+        documentation.addSection(new Section(Format.AsciiDoc, section));
+        return documentation;
+    }
+}
@@ -0,0 +1,27 @@
+package com.structurizr.model;
+
+import com.structurizr.Workspace;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The Acme workspaces in the workspaces directory, shared by the tests.
+ */
+public final class AcmeWorkspaces {
+
+    public static final List<Path> PATHS = List.of(
+            Path.of("workspaces/back-office.dsl"),
+            Path.of("workspaces/frontline.dsl"),
+            Path.of("workspaces/finance.dsl")
+    );
+
+    public static final Path DEPLOYMENT = Path.of("workspaces/deployment.dsl");
+
+    private AcmeWorkspaces() {
+    }
+
+    public static List<Workspace> parse() {
+        return WorkspaceTools.parse(PATHS);
+    }
+}
@@ -0,0 +1,58 @@
+package com.structurizr.model;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.stream.Stream;
+
+class AtomicFilesTest {
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    public void beforeEach() {
+        Assumptions.assumeTrue(directory.getFileSystem().supportedFileAttributeViews().contains("posix"));
+    }
+
+    @Test
+    public void givenNewFile_itHasTheDefaultPermissions() throws IOException {
+        final Path file = directory.resolve("workspace.json");
+        AtomicFiles.write(file, temporary -> Files.writeString(temporary, "{}"));
+
+        final Path other = Files.writeString(directory.resolve("other.json"), "{}");
+        Assertions.assertEquals(Files.getPosixFilePermissions(other), Files.getPosixFilePermissions(file));
+        Assertions.assertEquals("{}", Files.readString(file));
+    }
+
+    @Test
+    public void givenExistingFile_itKeepsItsPermissions() throws IOException {
+        final Path file = Files.writeString(directory.resolve("workspace.json"), "{}");
+        Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-r-----"));
+
+        AtomicFiles.write(file, temporary -> Files.writeString(temporary, "[]"));
+        Assertions.assertEquals(PosixFilePermissions.fromString("rw-r-----"), Files.getPosixFilePermissions(file));
+        Assertions.assertEquals("[]", Files.readString(file));
+    }
+
+    @Test
+    public void givenFailedWrite_existingFileIsUnchanged() throws IOException {
+        final Path file = Files.writeString(directory.resolve("workspace.json"), "{}");
+
+        Assertions.assertThrows(IOException.class, () -> AtomicFiles.write(file, temporary -> {
+            throw new IOException("Failed");
+        }));
+        Assertions.assertEquals("{}", Files.readString(file));
+        try (Stream<Path> files = Files.list(directory)) {
+            Assertions.assertEquals(List.of(file), files.toList());
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.structurizr.model;
+
+import com.structurizr.Workspace;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+class IncrementalMergeTest {
+
+    @TempDir
+    Path directory;
+
+    private List<Path> paths;
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        // Work on a copy of the Acme workspaces, so they can be edited
+        final Path source = Path.of("workspaces");
+        try (Stream<Path> files = Files.walk(source)) {
+            for (Path file : files.toList()) {
+                final Path target = directory.resolve(source.relativize(file).toString());
+                if (Files.isDirectory(file)) {
+                    Files.createDirectories(target);
+                } else {
+                    Files.copy(file, target);
+                }
+            }
+        }
+        paths = List.of(
+                directory.resolve("back-office.dsl"),
+                directory.resolve("frontline.dsl"),
+                directory.resolve("finance.dsl")
+        );
+    }
+
+    @Test
+    public void givenNoChanges_reusesMergedWorkspace() throws IOException {
+        final IncrementalMerge merge = new IncrementalMerge("Merged", "");
+        final Workspace first = merge.merge(paths);
+        Assertions.assertEquals(3, merge.getChangedPaths().size());
+
+        final Workspace second = merge.merge(paths);
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(List.of(), merge.getChangedPaths());
+    }
+
+    @Test
+    public void givenChangedWorkspace_onlyItIsParsedAgain() throws IOException {
+        final IncrementalMerge merge = new IncrementalMerge("Merged", "");
+        merge.merge(paths);
+
+        final Path finance = directory.resolve("finance.dsl");
+        Files.writeString(finance, Files.readString(finance)
+                .replace("Modern web UI for finance system", "Legacy web UI for finance system"));
+
+        final Workspace merged = merge.merge(paths);
+        Assertions.assertEquals(List.of(finance.toAbsolutePath().normalize()), merge.getChangedPaths());
+        final Element webUserInterface = merged.getModel().getElementWithCanonicalName("Container://Finance system.Web user interface");
+        Assertions.assertEquals("Legacy web UI for finance system", webUserInterface.getDescription());
+        Assertions.assertEquals("ACME finance", merge.getProvenance().getWorkspaceName(webUserInterface));
+    }
+
+    @Test
+    public void givenFailedMerge_repeatingItFailsToo() throws IOException {
+        final IncrementalMerge merge = new IncrementalMerge("Merged", "");
+        merge.merge(paths);
+
+        // The finance and front-line workspaces declare the back-office system as External
+        final Path backOffice = directory.resolve("back-office.dsl");
+        Files.writeString(backOffice, Files.readString(backOffice)
+                .replace("SoftwareSystem \"Back-office system\"", "SoftwareSystem \"Operations system\""));
+
+        Assertions.assertThrows(RuntimeException.class, () -> merge.merge(paths));
+        Assertions.assertThrows(RuntimeException.class, () -> merge.merge(paths));
+        Assertions.assertNull(merge.getWorkspace());
+        Assertions.assertNull(merge.getProvenance());
+    }
+
+    @Test
+    public void givenChangedDocumentation_workspaceIsParsedAgain() throws IOException {
+        final IncrementalMerge merge = new IncrementalMerge("Merged", "");
+        merge.merge(paths);
+
+        Files.writeString(directory.resolve("back-office-docs/02 Design.adoc"), "== Design\n\nRewritten.\n");
+
+        merge.merge(paths);
+        Assertions.assertEquals(List.of(directory.resolve("back-office.dsl").toAbsolutePath().normalize()), merge.getChangedPaths());
+    }
+
+    @Test
+    public void givenChangedNestedInclude_hashChanges() throws IOException {
+        final Path workspace = directory.resolve("nested.dsl");
+        Files.writeString(workspace, "workspace {\n    !include fragments/people.dsl\n}\n");
+        Files.createDirectories(directory.resolve("fragments"));
+        Files.writeString(directory.resolve("fragments/people.dsl"), "!include more-people.dsl\n");
+        final Path nested = directory.resolve("fragments/more-people.dsl");
+        Files.writeString(nested, "Person \"User\"\n");
+        final String before = IncrementalMerge.contentHash(workspace);
+
+        Files.writeString(nested, "Person \"Administrator\"\n");
+        Assertions.assertNotEquals(before, IncrementalMerge.contentHash(workspace));
+    }
+
+    @Test
+    public void givenQuotedReferenceWithSpaces_changesToItChangeTheHash() throws IOException {
+        final Path workspace = directory.resolve("spaces.dsl");
+        Files.writeString(workspace, "workspace {\n    !docs \"Back office docs\"\n}\n");
+        Files.createDirectories(directory.resolve("Back office docs"));
+        final Path overview = directory.resolve("Back office docs/01 Overview.md");
+        Files.writeString(overview, "# Overview\n");
+        final String before = IncrementalMerge.contentHash(workspace);
+
+        Files.writeString(overview, "# Overview\n\nRewritten.\n");
+        Assertions.assertNotEquals(before, IncrementalMerge.contentHash(workspace));
+    }
+
+    @Test
+    public void givenMissingReference_hashingFails() throws IOException {
+        final Path workspace = directory.resolve("missing.dsl");
+        Files.writeString(workspace, "workspace {\n    !docs \"No such docs\"\n}\n");
+        Assertions.assertThrows(NoSuchFileException.class, () -> IncrementalMerge.contentHash(workspace));
+    }
+
+    @Test
+    public void givenChangedExtendedWorkspace_hashChanges() throws IOException {
+        final Path base = directory.resolve("base.dsl");
+        Files.writeString(base, "workspace {\n    model {\n        Person \"User\"\n    }\n}\n");
+        final Path extension = directory.resolve("extension.dsl");
+        Files.writeString(extension, "workspace extends base.dsl {\n}\n");
+        final String before = IncrementalMerge.contentHash(extension);
+
+        Files.writeString(base, "workspace {\n    model {\n        Person \"Administrator\"\n    }\n}\n");
+        Assertions.assertNotEquals(before, IncrementalMerge.contentHash(extension));
+    }
+}
@@ -0,0 +1,159 @@
+package com.structurizr.model;
+
+import com.structurizr.Workspace;
+import com.structurizr.documentation.Section;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+class MergeSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void givenSnapshotOfSameInputs_loadsEquivalentModel() throws IOException {
+        final Path snapshot = directory.resolve("acme.snapshot");
+        final Workspace merged = MergeSnapshot.mergeOrLoad(AcmeWorkspaces.PATHS, snapshot, "Merged", "").workspace();
+        Assertions.assertTrue(Files.exists(snapshot));
+
+        final Workspace loaded = new Workspace("Loaded", "");
+        Assertions.assertNotNull(MergeSnapshot.read(snapshot, MergeSnapshot.inputHash(AcmeWorkspaces.PATHS), loaded.getModel()));
+
+        Assertions.assertEquals(describe(merged.getModel()), describe(loaded.getModel()));
+        Assertions.assertEquals(describeRelationships(merged.getModel()), describeRelationships(loaded.getModel()));
+
+        final SoftwareSystem backOffice = (SoftwareSystem) loaded.getModel().getElementWithCanonicalName("SoftwareSystem://Back-office system");
+        Assertions.assertEquals(
+                List.of("00 Overview.adoc", "01 System Context.adoc", "02 Design.adoc"),
+                backOffice.getDocumentation().getSections().stream()
+                        .sorted(Comparator.comparing(Section::getOrder))
+                        .map(Section::getFilename)
+                        .toList()
+        );
+    }
+
+    @Test
+    public void givenDeploymentElements_snapshotLoadsThem() throws IOException {
+        final List<Path> inputs = new ArrayList<>(AcmeWorkspaces.PATHS);
+        inputs.add(AcmeWorkspaces.DEPLOYMENT);
+        final Path snapshot = directory.resolve("deployment.snapshot");
+        final Workspace merged = MergeSnapshot.mergeOrLoad(inputs, snapshot, "Merged", "").workspace();
+
+        final Workspace loaded = new Workspace("Loaded", "");
+        Assertions.assertNotNull(MergeSnapshot.read(snapshot, MergeSnapshot.inputHash(inputs), loaded.getModel()));
+
+        Assertions.assertEquals(describe(merged.getModel()), describe(loaded.getModel()));
+        Assertions.assertEquals(describeRelationships(merged.getModel()), describeRelationships(loaded.getModel()));
+        final ContainerInstance hub = loaded.getModel().getElements().stream()
+                .filter(element -> element instanceof ContainerInstance)
+                .map(ContainerInstance.class::cast)
+                .filter(instance -> instance.getContainer().getName().equals("Integration hub"))
+                .findFirst().orElseThrow();
+        Assertions.assertEquals(1, hub.getHealthChecks().size());
+    }
+
+    @Test
+    public void givenSnapshotOfOtherInputs_isNotLoaded() throws IOException {
+        final Path snapshot = directory.resolve("acme.snapshot");
+        MergeSnapshot.mergeOrLoad(AcmeWorkspaces.PATHS, snapshot, "Merged", "");
+
+        final Workspace loaded = new Workspace("Loaded", "");
+        Assertions.assertNull(MergeSnapshot.read(snapshot, MergeSnapshot.inputHash(AcmeWorkspaces.PATHS.subList(0, 2)), loaded.getModel()));
+        Assertions.assertTrue(loaded.getModel().getElements().isEmpty());
+    }
+
+    @Test
+    public void givenModelWithImpliedRelationships_snapshotKeepsThem() throws IOException {
+        final Workspace parsed = WorkspaceTools.parse(List.of(AcmeWorkspaces.PATHS.get(2))).get(0);
+        Assertions.assertTrue(parsed.getModel().getRelationships().stream()
+                .anyMatch(relationship -> null != relationship.getLinkedRelationshipId()));
+        final Path snapshot = directory.resolve("finance.snapshot");
+        MergeSnapshot.write(parsed.getModel(), new MergeProvenance(), "hash", snapshot);
+
+        final Workspace loaded = new Workspace("Loaded", "");
+        Assertions.assertNotNull(MergeSnapshot.read(snapshot, "hash", loaded.getModel()));
+        Assertions.assertEquals(describeRelationships(parsed.getModel()), describeRelationships(loaded.getModel()));
+    }
+
+    @Test
+    public void givenForeignOrTruncatedFile_itIsStaleAndReplaced() throws IOException {
+        final Path snapshot = directory.resolve("acme.snapshot");
+        Files.writeString(snapshot, "Not a snapshot");
+        Assertions.assertNull(MergeSnapshot.read(snapshot, MergeSnapshot.inputHash(AcmeWorkspaces.PATHS), new Workspace("Loaded", "").getModel()));
+
+        final Workspace merged = MergeSnapshot.mergeOrLoad(AcmeWorkspaces.PATHS, snapshot, "Merged", "").workspace();
+        final byte[] content = Files.readAllBytes(snapshot);
+        Files.write(snapshot, Arrays.copyOf(content, content.length / 2));
+        Assertions.assertNull(MergeSnapshot.read(snapshot, MergeSnapshot.inputHash(AcmeWorkspaces.PATHS), new Workspace("Loaded", "").getModel()));
+
+        final Workspace remerged = MergeSnapshot.mergeOrLoad(AcmeWorkspaces.PATHS, snapshot, "Merged", "").workspace();
+        Assertions.assertEquals(describe(merged.getModel()), describe(remerged.getModel()));
+        Assertions.assertNotNull(MergeSnapshot.read(snapshot, MergeSnapshot.inputHash(AcmeWorkspaces.PATHS), new Workspace("Loaded", "").getModel()));
+    }
+
+    @Test
+    public void givenCorruptContent_itIsStaleAndReplaced() throws IOException {
+        final Path snapshot = directory.resolve("acme.snapshot");
+        final Workspace merged = MergeSnapshot.mergeOrLoad(AcmeWorkspaces.PATHS, snapshot, "Merged", "").workspace();
+
+        // Keep the header, including the input hash, and the trailer, but overwrite everything in between
+        final byte[] content = Files.readAllBytes(snapshot);
+        final int headerLength = 4 + 4 + 4 + 4 + 64;
+        Arrays.fill(content, headerLength, content.length - 4, (byte) 0x7f);
+        Files.write(snapshot, content);
+        Assertions.assertNull(MergeSnapshot.read(snapshot, MergeSnapshot.inputHash(AcmeWorkspaces.PATHS), new Workspace("Loaded", "").getModel()));
+
+        final Workspace remerged = MergeSnapshot.mergeOrLoad(AcmeWorkspaces.PATHS, snapshot, "Merged", "").workspace();
+        Assertions.assertEquals(describe(merged.getModel()), describe(remerged.getModel()));
+    }
+
+    @Test
+    public void givenSnapshot_provenanceIsLoadedWithTheModel() throws IOException {
+        final Path snapshot = directory.resolve("acme.snapshot");
+        final MergeSnapshot.Result merged = MergeSnapshot.mergeOrLoad(AcmeWorkspaces.PATHS, snapshot, "Merged", "");
+        final MergeSnapshot.Result loaded = MergeSnapshot.mergeOrLoad(AcmeWorkspaces.PATHS, snapshot, "Loaded", "");
+        Assertions.assertEquals("Loaded", loaded.workspace().getName());
+
+        Assertions.assertEquals(merged.provenance().getWorkspaceNames(), loaded.provenance().getWorkspaceNames());
+        Assertions.assertEquals(
+                describeProvenance(merged.workspace().getModel(), merged.provenance()),
+                describeProvenance(loaded.workspace().getModel(), loaded.provenance())
+        );
+        Assertions.assertEquals("Acme back-office", loaded.provenance().getWorkspaceName(
+                loaded.workspace().getModel().getElementWithCanonicalName("SoftwareSystem://Back-office system")));
+    }
+
+    private static Map<String, String> describeProvenance(Model model, MergeProvenance provenance) {
+        return model.getElements().stream().collect(Collectors.toMap(
+                Element::getCanonicalName,
+                element -> String.valueOf(provenance.getWorkspaceName(element))
+        ));
+    }
+
+    private static Map<String, String> describe(Model model) {
+        return model.getElements().stream().collect(Collectors.toMap(
+                Element::getCanonicalName,
+                element -> element.getDescription() + "|" + element.getTags() + "|" + element.getProperties()
+        ));
+    }
+
+    private static Set<String> describeRelationships(Model model) {
+        return model.getRelationships().stream()
+                .map(relationship -> relationship.getSource().getCanonicalName()
+                        + " -[" + relationship.getDescription() + "|" + relationship.getTechnology() + "|" + relationship.getTags() + "]-> "
+                        + relationship.getDestination().getCanonicalName())
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,61 @@
+package com.structurizr.model;
+
+import com.structurizr.Workspace;
+import com.structurizr.documentation.ContentStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class RelationshipImportTest {
+
+    @Test
+    public void givenRepeatedDeclarations_firstIsMergedAndOthersReported() {
+        final Workspace merged = new Workspace("Merged", "");
+        final Map<String, Element> mergedElements = new HashMap<>();
+        for (String name : List.of("A", "B")) {
+            final SoftwareSystem softwareSystem = merged.getModel().addSoftwareSystem(name, "");
+            mergedElements.put(softwareSystem.getCanonicalName(), softwareSystem);
+        }
+
+        final RelationshipImport relationshipImport = new RelationshipImport(merged.getModel(), mergedElements);
+        relationshipImport.add("One", declare("HTTPS"));
+        relationshipImport.add("Two", declare("HTTPS"));
+        relationshipImport.add("Three", declare("gRPC"));
+
+        final MergeStatistics statistics = new MergeStatistics(3);
+        relationshipImport.apply(statistics);
+
+        final Relationship relationship = mergedElements.get("SoftwareSystem://A")
+                .getEfferentRelationshipWith(mergedElements.get("SoftwareSystem://B"));
+        Assertions.assertEquals("HTTPS", relationship.getTechnology());
+        Assertions.assertEquals(Map.of("One", 1), statistics.getRelationshipCounts());
+        Assertions.assertEquals(List.of(
+                new MergeStatistics.DroppedRelationship("Two", "SoftwareSystem://A", "SoftwareSystem://B", "Uses", false),
+                new MergeStatistics.DroppedRelationship("Three", "SoftwareSystem://A", "SoftwareSystem://B", "Uses", true)
+        ), statistics.getDroppedRelationships());
+    }
+
+    @Test
+    public void givenUndefinedDestination_throwsException() {
+        final Workspace merged = new Workspace("Merged", "");
+        final Map<String, Element> mergedElements = new HashMap<>();
+        final SoftwareSystem a = merged.getModel().addSoftwareSystem("A", "");
+        mergedElements.put(a.getCanonicalName(), a);
+
+        final RelationshipImport relationshipImport = new RelationshipImport(merged.getModel(), mergedElements);
+        final RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () ->
+                relationshipImport.add("One", declare("HTTPS"))
+        );
+        Assertions.assertEquals("Destination SoftwareSystem://B has not been defined", exception.getMessage());
+    }
+
+    private static WorkspacePlan.RelationshipPlan declare(String technology) {
+        final Model model = new Workspace("Source", "").getModel();
+        final SoftwareSystem a = model.addSoftwareSystem("A", "");
+        final SoftwareSystem b = model.addSoftwareSystem("B", "");
+        return WorkspacePlan.plan(a.uses(b, "Uses", technology), new ContentStore());
+    }
+}
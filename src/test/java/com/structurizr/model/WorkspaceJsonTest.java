@@ -0,0 +1,62 @@
+package com.structurizr.model;
+
+import com.structurizr.Workspace;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+class WorkspaceJsonTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void givenMergedWorkspace_jsonRoundTrips() throws IOException {
+        final Workspace merged = merge(AcmeWorkspaces.parse());
+
+        final Path plain = directory.resolve("acme.json");
+        final Path gzipped = directory.resolve("acme.json.gz");
+        WorkspaceJson.write(merged, plain, false);
+        WorkspaceJson.write(merged, gzipped, true);
+
+        try (InputStream in = Files.newInputStream(gzipped)) {
+            Assertions.assertEquals(0x1f, in.read());
+            Assertions.assertEquals(0x8b, in.read());
+        }
+        Assertions.assertEquals(canonicalNames(merged), canonicalNames(WorkspaceJson.read(plain)));
+        Assertions.assertEquals(canonicalNames(merged), canonicalNames(WorkspaceJson.read(gzipped)));
+        Assertions.assertEquals(merged.getModel().getRelationships().size(),
+                WorkspaceJson.read(gzipped).getModel().getRelationships().size());
+    }
+
+    @Test
+    public void givenPublishedJson_canBeUsedAsMergeInput() throws IOException {
+        final List<Workspace> sources = AcmeWorkspaces.parse();
+        final Path finance = directory.resolve("finance.json.gz");
+        WorkspaceJson.write(sources.get(2), finance, true);
+
+        final List<Workspace> mixed = WorkspaceTools.parse(List.of(AcmeWorkspaces.PATHS.get(0), AcmeWorkspaces.PATHS.get(1), finance));
+
+        Assertions.assertEquals(canonicalNames(merge(sources)), canonicalNames(merge(mixed)));
+    }
+
+    private static Workspace merge(List<Workspace> workspaces) {
+        final Workspace merged = new Workspace("Merged", "");
+        WorkspaceTools.merge(workspaces, merged.getModel());
+        return merged;
+    }
+
+    private static Set<String> canonicalNames(Workspace workspace) {
+        return workspace.getModel().getElements().stream()
+                .map(Element::getCanonicalName)
+                .collect(Collectors.toSet());
+    }
+}
@@ -6,14 +6,18 @@ import com.structurizr.documentation.Section;
 import com.structurizr.dsl.StructurizrDslParser;
 import com.structurizr.dsl.StructurizrDslParserException;
 import com.structurizr.util.WorkspaceUtils;
+import com.structurizr.view.ViewTools;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -71,7 +75,7 @@ class WorkspaceToolsTest {
 
     @Test
     public void givenSystemWithSameName_ReportsDuplication() throws StructurizrDslParserException {
-        final List<Workspace> workspaces = new ArrayList<>(parseAcmeWorkspaces());
+        final List<Workspace> workspaces = new ArrayList<>(AcmeWorkspaces.parse());
         workspaces.add(parseDsl("""
                 workspace {
                     model {
@@ -88,7 +92,8 @@ class WorkspaceToolsTest {
     @Test
     public void givenWorkspacesWithExternalRef_ResolvesTheExternal() throws Exception {
         final Model model = workspace.getModel();
-        WorkspaceTools.merge(parseAcmeWorkspaces(), model);
+        final List<Workspace> workspaces = AcmeWorkspaces.parse();
+        WorkspaceTools.merge(workspaces, model);
 
         final SoftwareSystem backOffice = (SoftwareSystem) model.getElementWithCanonicalName("SoftwareSystem://Back-office system");
         Assertions.assertEquals("Runs Acme's operations", backOffice.getDescription());
@@ -99,8 +104,8 @@ class WorkspaceToolsTest {
             model.getRelationships().forEach(writer::println);
         }
 
-        // Add views
-        workspace.getViews().createDefaultViews();
+        // Add the views defined by the source workspaces
+        ViewTools.merge(workspaces, workspace, false);
 
         // Save the workspace as JSON
         WorkspaceUtils.saveWorkspaceToJson(workspace, new File("target/acme.json"));
@@ -128,7 +133,7 @@ class WorkspaceToolsTest {
     @Test
     public void givenModelWithTechnologyAndTags_copiesThem() throws StructurizrDslParserException {
         final Model model = workspace.getModel();
-        WorkspaceTools.merge(parseAcmeWorkspaces(), model);
+        WorkspaceTools.merge(AcmeWorkspaces.parse(), model);
 
         final SoftwareSystem backOffice = (SoftwareSystem) model.getElementWithCanonicalName("SoftwareSystem://Back-office system");
 
@@ -149,7 +154,7 @@ class WorkspaceToolsTest {
 
     @Test
     public void givenSystemDocumentation_mergeCopiesIt() throws StructurizrDslParserException {
-        WorkspaceTools.merge(parseAcmeWorkspaces(), workspace.getModel());
+        WorkspaceTools.merge(AcmeWorkspaces.parse(), workspace.getModel());
 
         final SoftwareSystem backOffice = (SoftwareSystem) workspace.getModel().getElementWithCanonicalName("SoftwareSystem://Back-office system");
 
@@ -165,7 +170,7 @@ class WorkspaceToolsTest {
 
     @Test
     public void givenExternalSystem_DefinitiveContainerIsMerged() throws StructurizrDslParserException {
-        WorkspaceTools.merge(parseAcmeWorkspaces(), workspace.getModel());
+        WorkspaceTools.merge(AcmeWorkspaces.parse(), workspace.getModel());
 
         // The Finance UI Container with the definitive description should have been copied
         final Element webUI = workspace.getModel().getElementWithCanonicalName("Container://Finance system.Web user interface");
@@ -174,10 +179,10 @@ class WorkspaceToolsTest {
 
     @Test
     public void givenSuccessfulMerge_workspaceDetailsCaptured() throws StructurizrDslParserException {
-        WorkspaceTools.merge(parseAcmeWorkspaces(), workspace.getModel());
+        final MergeProvenance provenance = WorkspaceTools.merge(AcmeWorkspaces.parse(), workspace.getModel()).getProvenance();
 
         // Collect all elements in the merged workspace, grouped by workspace name
-        final Function<Element, String> workspaceName = element -> element.getProperties().getOrDefault("workspace-name", "Missing");
+        final Function<Element, String> workspaceName = element -> Objects.requireNonNullElse(provenance.getWorkspaceName(element), "Missing");
         final Map<String, List<Element>> elementsByWorkspace = workspace.getModel().getElements().stream()
                 .sorted(Comparator.comparing(Element::getCanonicalName))
                 .collect(Collectors.groupingBy(workspaceName));
@@ -203,12 +208,108 @@ class WorkspaceToolsTest {
                 "Person://Assessor",
                 "SoftwareSystem://Back-office system"
         ), backOfficeElementNames);
+        Assertions.assertFalse(elementsByWorkspace.containsKey("Missing"));
+    }
+
+    @Test
+    public void givenMerge_sourceWorkspacesAreUnchanged() {
+        final List<Workspace> workspaces = AcmeWorkspaces.parse();
+        final Map<String, Map<String, String>> before = properties(workspaces);
+
+        WorkspaceTools.merge(workspaces, workspace.getModel());
+
+        Assertions.assertEquals(before, properties(workspaces));
+    }
+
+    @Test
+    public void givenRepeatedAttributes_mergedElementsShareThem() throws StructurizrDslParserException {
+        final List<Workspace> workspaces = List.of(
+                parseDsl("""
+                        workspace {
+                            model {
+                                SoftwareSystem "One" {
+                                    web = Container "Web" "" "Java" "Tier 1"
+                                    database = Container "Database" "" "PostgreSQL"
+                                    web -> database "Reads from" "JDBC" "Tier 1"
+                                }
+                            }
+                        }
+                        """),
+                parseDsl("""
+                        workspace {
+                            model {
+                                SoftwareSystem "Two" {
+                                    web = Container "Web" "" "Java" "Tier 1"
+                                    database = Container "Database" "" "PostgreSQL"
+                                    web -> database "Reads from" "JDBC" "Tier 1"
+                                }
+                            }
+                        }
+                        """));
+
+        WorkspaceTools.merge(workspaces, workspace.getModel());
+
+        final Container one = (Container) workspace.getModel().getElementWithCanonicalName("Container://One.Web");
+        final Container two = (Container) workspace.getModel().getElementWithCanonicalName("Container://Two.Web");
+        Assertions.assertSame(one.getTechnology(), two.getTechnology());
+        Assertions.assertEquals(one.getTagsAsSet(), two.getTagsAsSet());
+        Assertions.assertTrue(one.hasTag("Tier 1"));
+        Assertions.assertEquals(List.copyOf(workspaces.get(0).getModel().getElementWithCanonicalName("Container://One.Web").getTagsAsSet()),
+                List.copyOf(one.getTagsAsSet()));
+
+        final Relationship reads = one.getEfferentRelationshipWith(workspace.getModel().getElementWithCanonicalName("Container://One.Database"));
+        final Relationship alsoReads = two.getEfferentRelationshipWith(workspace.getModel().getElementWithCanonicalName("Container://Two.Database"));
+        Assertions.assertSame(reads.getTechnology(), alsoReads.getTechnology());
+        Assertions.assertTrue(reads.hasTag("Tier 1"));
+    }
+
+    @Test
+    public void givenComponentWithinExternalSystem_isClassifiedAsExternal() throws StructurizrDslParserException {
+        final Workspace source = parseDsl("""
+                workspace {
+                    model {
+                        SoftwareSystem "Foo" "" "External" {
+                            Container "Web" {
+                                Component "Controller"
+                            }
+                        }
+                        SoftwareSystem "Bar"
+                    }
+                }
+                """);
+
+        final Set<String> externals = WorkspaceTools.findDeclaredExternals(source.getModel()).stream()
+                .map(Element::getCanonicalName)
+                .collect(Collectors.toSet());
+        Assertions.assertEquals(Set.of(
+                "SoftwareSystem://Foo",
+                "Container://Foo.Web",
+                "Component://Foo.Web.Controller"
+        ), externals);
+    }
+
+    @Test
+    public void givenSuccessfulMerge_statisticsDescribeIt() {
+        final MergeStatistics statistics = WorkspaceTools.merge(AcmeWorkspaces.parse(), workspace.getModel());
+
+        Assertions.assertEquals(EnumSet.allOf(MergeStatistics.Phase.class), statistics.getPhaseDurations().keySet());
+        Assertions.assertEquals(
+                Map.of("Container", 3, "Person", 1, "SoftwareSystem", 1),
+                statistics.getElementCounts().get("Acme back-office")
+        );
+        Assertions.assertEquals(workspace.getModel().getElements().size(), statistics.getElementCount());
+        Assertions.assertEquals(
+                Set.of("Acme back-office", "Acme front-line systems", "ACME finance"),
+                statistics.getRelationshipCounts().keySet()
+        );
+        Assertions.assertEquals(8, statistics.getExternalsResolved());
+        Assertions.assertTrue(statistics.getDocumentationBytes() > 0);
     }
 
     @Test
     public void givenEfferentRelationshipFromExternal_DefinitiveRelationshipIsMerged() throws StructurizrDslParserException {
         final Model model = workspace.getModel();
-        WorkspaceTools.merge(parseAcmeWorkspaces(), model);
+        WorkspaceTools.merge(AcmeWorkspaces.parse(), model);
 
         // After the merge, the only relationship between the CSR and Assessor should be the definitive one
         final Element csr = model.getElementWithCanonicalName("Person://Customer service rep");
@@ -221,12 +322,156 @@ class WorkspaceToolsTest {
         );
     }
 
-    private static List<Workspace> parseAcmeWorkspaces() throws StructurizrDslParserException {
-        return List.of(
-                parseDslFile("workspaces/back-office.dsl"),
-                parseDslFile("workspaces/frontline.dsl"),
-                parseDslFile("workspaces/finance.dsl")
+    @Test
+    public void givenRootAndHops_mergesOnlyReachableElements() {
+        final Model model = workspace.getModel();
+        WorkspaceTools.merge(AcmeWorkspaces.parse(), model, List.of("SoftwareSystem://Front-line system"), 1);
+
+        Assertions.assertEquals(
+                Set.of("SoftwareSystem://Front-line system", "SoftwareSystem://Back-office system", "Person://Customer service rep"),
+                model.getElements().stream().map(Element::getCanonicalName).collect(Collectors.toSet())
+        );
+        final Element csr = model.getElementWithCanonicalName("Person://Customer service rep");
+        final Element frontLine = model.getElementWithCanonicalName("SoftwareSystem://Front-line system");
+        Assertions.assertNotNull(csr.getEfferentRelationshipWith(frontLine));
+    }
+
+    @Test
+    public void givenContainerReachable_itsParentIsMerged() {
+        final Set<String> reachable = WorkspaceTools.findReachable(AcmeWorkspaces.parse(), List.of("Container://Back-office system.Integration hub"), 1);
+        Assertions.assertTrue(reachable.contains("Container://Finance system.Database"));
+        Assertions.assertTrue(reachable.contains("SoftwareSystem://Finance system"));
+        Assertions.assertFalse(reachable.contains("Container://Finance system.Web user interface"));
+    }
+
+    @Test
+    public void givenUnknownRoot_scopedMergeThrowsException() {
+        final IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class, () ->
+                WorkspaceTools.merge(AcmeWorkspaces.parse(), workspace.getModel(), List.of("SoftwareSystem://Nowhere"), 2)
+        );
+        Assertions.assertEquals("The following roots aren't defined in any workspace: SoftwareSystem://Nowhere", exception.getMessage());
+    }
+
+    @Test
+    public void givenMergeableWorkspaces_validationFindsNoProblems() {
+        final MergeValidation validation = WorkspaceTools.validate(AcmeWorkspaces.parse());
+        Assertions.assertTrue(validation.isValid(), validation::toString);
+    }
+
+    @Test
+    public void givenSeveralProblems_validationReportsThemAll() throws StructurizrDslParserException {
+        final List<Workspace> workspaces = new ArrayList<>(AcmeWorkspaces.parse());
+        workspaces.add(parseDsl("""
+                workspace "Problems" {
+                    model {
+                        SoftwareSystem "Back-office system"
+                        SoftwareSystem "Foo" "" "External"
+                        Person "Customer service rep" "" "External"
+                    }
+                }
+                """));
+
+        final MergeValidation validation = WorkspaceTools.validate(workspaces);
+        Assertions.assertEquals(List.of(
+                new MergeValidation.Problem(MergeValidation.ProblemType.UNRESOLVED_EXTERNAL, "SoftwareSystem://Foo", List.of("Problems")),
+                new MergeValidation.Problem(MergeValidation.ProblemType.DUPLICATE_NAME, "Back-office system", List.of("Acme back-office", "Problems"))
+        ), validation.getProblems());
+    }
+
+    @Test
+    public void givenDeploymentWorkspace_everyElementTypeIsMerged() {
+        final List<Workspace> workspaces = new ArrayList<>(AcmeWorkspaces.parse());
+        workspaces.addAll(WorkspaceTools.parse(List.of(AcmeWorkspaces.DEPLOYMENT)));
+        Assertions.assertTrue(WorkspaceTools.validate(workspaces).isValid());
+
+        final MergeStatistics statistics = WorkspaceTools.merge(workspaces, workspace.getModel());
+        Assertions.assertEquals(Map.of(
+                "ContainerInstance", 2,
+                "CustomElement", 1,
+                "DeploymentNode", 3,
+                "InfrastructureNode", 1,
+                "SoftwareSystemInstance", 1
+        ), statistics.getElementCounts().get("Acme deployment"));
+
+        final Model model = workspace.getModel();
+        final Map<String, Element> elements = model.getElements().stream()
+                .collect(Collectors.toMap(Element::getName, Function.identity(), (first, second) -> first));
+
+        final DeploymentNode server = (DeploymentNode) elements.get("Application server");
+        Assertions.assertEquals("Data centre", server.getParent().getName());
+        Assertions.assertEquals("Live", server.getEnvironment());
+        Assertions.assertEquals("2", server.getInstances());
+
+        final ContainerInstance hub = model.getElements().stream()
+                .filter(element -> element instanceof ContainerInstance && element.getParent() == server)
+                .map(ContainerInstance.class::cast)
+                .findFirst().orElseThrow();
+        Assertions.assertSame(model.getElementWithCanonicalName("Container://Back-office system.Integration hub"), hub.getContainer());
+        Assertions.assertEquals(1, hub.getHealthChecks().size());
+
+        Assertions.assertEquals("Hardware", ((CustomElement) elements.get("Cheque printer")).getMetadata());
+        Assertions.assertEquals("F5", ((InfrastructureNode) elements.get("Load balancer")).getTechnology());
+        Assertions.assertEquals("Acme deployment", statistics.getProvenance().getWorkspaceName(server));
+    }
+
+    @Test
+    public void givenDeploymentInstanceReachable_whatItIsAnInstanceOfIsMerged() {
+        final List<Workspace> workspaces = new ArrayList<>(AcmeWorkspaces.parse());
+        workspaces.addAll(WorkspaceTools.parse(List.of(AcmeWorkspaces.DEPLOYMENT)));
+
+        WorkspaceTools.merge(workspaces, workspace.getModel(), List.of("DeploymentNode://Live/Data centre/Database server"), 0);
+
+        Assertions.assertNotNull(workspace.getModel().getElementWithCanonicalName("Container://Finance system.Database"));
+        Assertions.assertNull(workspace.getModel().getElementWithCanonicalName("Container://Back-office system.Integration hub"));
+    }
+
+    @Test
+    public void givenDeploymentNodeWithInstanceRange_rangeIsMerged() {
+        final Workspace source = new Workspace("Scaling", "");
+        final DeploymentNode cluster = source.getModel().addDeploymentNode("Live", "Cluster", "", "Kubernetes");
+        cluster.addDeploymentNode("Pod", "", "Docker").setInstances("1..3");
+
+        WorkspaceTools.merge(List.of(source), workspace.getModel());
+
+        final DeploymentNode pod = (DeploymentNode) workspace.getModel().getElementWithCanonicalName("DeploymentNode://Live/Cluster/Pod");
+        Assertions.assertEquals("1..3", pod.getInstances());
+        Assertions.assertEquals("1", ((DeploymentNode) pod.getParent()).getInstances());
+    }
+
+    @Test
+    public void givenDirectoryOfWorkspaces_mergesThemInPathOrder() throws IOException {
+        final List<Workspace> workspaces = WorkspaceTools.parse(Path.of("workspaces"), "{back-office,finance,frontline}.dsl");
+        Assertions.assertEquals(
+                List.of("Acme back-office", "ACME finance", "Acme front-line systems"),
+                workspaces.stream().map(Workspace::getName).toList()
+        );
+
+        final Model model = workspace.getModel();
+        WorkspaceTools.merge(Path.of("workspaces"), "{back-office,finance,frontline}.dsl", model);
+        Assertions.assertNotNull(model.getElementWithCanonicalName("SoftwareSystem://Back-office system"));
+    }
+
+    @Test
+    public void givenInvalidWorkspaceFiles_reportsEveryFailure(@TempDir Path directory) throws IOException {
+        Files.writeString(directory.resolve("a.dsl"), "workspace {\n    model {\n        Foo\n    }\n}\n");
+        Files.writeString(directory.resolve("b.dsl"), "workspace {\n    model {\n        SoftwareSystem \"Bar\"\n    }\n}\n");
+        Files.writeString(directory.resolve("c.dsl"), "workspace {\n    model {\n        Baz\n    }\n}\n");
+
+        final RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () ->
+                WorkspaceTools.parse(directory, "*.dsl")
         );
+        Assertions.assertTrue(exception.getMessage().startsWith("The following workspaces failed to parse: "));
+        Assertions.assertTrue(exception.getMessage().contains(directory.resolve("a.dsl").toString()));
+        Assertions.assertFalse(exception.getMessage().contains(directory.resolve("b.dsl").toString()));
+        Assertions.assertTrue(exception.getMessage().contains(directory.resolve("c.dsl").toString()));
+        Assertions.assertEquals(2, exception.getSuppressed().length);
+    }
+
+    private static Map<String, Map<String, String>> properties(List<Workspace> workspaces) {
+        final Map<String, Map<String, String>> properties = new HashMap<>();
+        workspaces.forEach(w -> w.getModel().getElements().forEach(element ->
+                properties.put(w.getName() + "/" + element.getCanonicalName(), element.getProperties())));
+        return properties;
     }
 
     private static void assertSection(Section section, String filename) {
@@ -238,10 +483,4 @@ class WorkspaceToolsTest {
         parser.parse(dsl);
         return parser.getWorkspace();
     }
-
-    private static Workspace parseDslFile(String pathname) throws StructurizrDslParserException {
-        final StructurizrDslParser parser = new StructurizrDslParser();
-        parser.parse(new File(pathname));
-        return parser.getWorkspace();
-    }
 }
\ No newline at end of file
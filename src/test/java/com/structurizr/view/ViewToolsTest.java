@@ -0,0 +1,63 @@
+package com.structurizr.view;
+
+import com.structurizr.Workspace;
+import com.structurizr.model.AcmeWorkspaces;
+import com.structurizr.model.Element;
+import com.structurizr.model.WorkspaceTools;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+class ViewToolsTest {
+
+    @Test
+    public void givenMergedWorkspaces_viewsAreReboundToTheMergedModel() {
+        final List<Workspace> workspaces = AcmeWorkspaces.parse();
+        final Workspace merged = new Workspace("Merged", "A combination of several workspaces");
+        WorkspaceTools.merge(workspaces, merged.getModel());
+
+        ViewTools.merge(workspaces, merged, false);
+
+        Assertions.assertEquals(Set.of(
+                "Backofficesystem-Landscape", "Backofficesystem-SystemContext", "Backofficesystem-Container",
+                "Frontlinesystem-Landscape", "Frontlinesystem-SystemContext",
+                "Finance-SystemContext", "Finance-Container"
+        ), Set.copyOf(viewKeys(merged)));
+
+        final Set<Element> mergedElements = merged.getModel().getElements();
+        final View context = merged.getViews().getViewWithKey("Backofficesystem-SystemContext");
+        Assertions.assertFalse(context.getElements().isEmpty());
+        context.getElements().forEach(elementView -> Assertions.assertTrue(mergedElements.contains(elementView.getElement())));
+        context.getRelationships().forEach(relationshipView -> Assertions.assertTrue(
+                merged.getModel().getRelationships().contains(relationshipView.getRelationship())));
+        Assertions.assertNotNull(context.getAutomaticLayout());
+    }
+
+    @Test
+    public void givenLazyMerge_viewsAreCreatedOnFirstRequest() {
+        final List<Workspace> workspaces = AcmeWorkspaces.parse();
+        final Workspace merged = new Workspace("Merged", "A combination of several workspaces");
+        WorkspaceTools.merge(workspaces, merged.getModel());
+
+        final MergedViews views = ViewTools.merge(workspaces, merged, true);
+        Assertions.assertEquals(7, views.getKeys().size());
+        Assertions.assertTrue(viewKeys(merged).isEmpty());
+
+        final View container = views.getView("Finance-Container");
+        Assertions.assertSame(container, views.getView("Finance-Container"));
+        Assertions.assertEquals(List.of("Finance-Container"), viewKeys(merged));
+        Assertions.assertNull(views.getView("Unknown"));
+    }
+
+    private static List<String> viewKeys(Workspace workspace) {
+        final ViewSet views = workspace.getViews();
+        return Stream.of(views.getSystemLandscapeViews(), views.getSystemContextViews(), views.getContainerViews())
+                .flatMap(Collection::stream)
+                .map(View::getKey)
+                .toList();
+    }
+}